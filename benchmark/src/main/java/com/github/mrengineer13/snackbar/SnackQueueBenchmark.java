@@ -0,0 +1,111 @@
+package com.github.mrengineer13.snackbar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queue operations {@link SnackContainer} runs for every snack: queueing and
+ * showing the next one, dropping the oldest on overflow, removing an arbitrary snack and
+ * copying the queue when state is saved. The {@code LinkedList} baseline is the queue the
+ * container used before snacks had priorities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnackQueueBenchmark {
+
+    // SnackBar itself depends on Android, so its priorities are repeated here
+    private static final int PRIORITY_LOW = -1;
+    private static final int PRIORITY_NORMAL = 0;
+    private static final int PRIORITY_HIGH = 1;
+
+    public static final class Item extends SnackQueue.Entry {
+    }
+
+    @Param({"4", "64", "1024"})
+    public int size;
+
+    private SnackQueue<Item> mQueue;
+
+    private LinkedList<Item> mBaseline;
+
+    private Item[] mItems;
+
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        mQueue = new SnackQueue<>();
+        mBaseline = new LinkedList<>();
+        mItems = new Item[size];
+        for (int i = 0; i < size; i++) {
+            Item item = new Item();
+            // Mostly normal priority with the odd low and high one, as apps tend to queue them
+            item.priority = i % 7 == 0 ? PRIORITY_HIGH : (i % 5 == 0 ? PRIORITY_LOW : PRIORITY_NORMAL);
+            mItems[i] = item;
+            mQueue.offer(item);
+            mBaseline.offer(item);
+        }
+    }
+
+    @Benchmark
+    public Item offerPoll() {
+        Item item = mQueue.poll();
+        mQueue.offer(item);
+        return item;
+    }
+
+    @Benchmark
+    public Item offerPollBaseline() {
+        Item item = mBaseline.poll();
+        mBaseline.offer(item);
+        return item;
+    }
+
+    @Benchmark
+    public Item dropOldest() {
+        Item oldest = mQueue.peekOldest();
+        mQueue.remove(oldest);
+        mQueue.offer(oldest);
+        return oldest;
+    }
+
+    @Benchmark
+    public Item removeArbitrary() {
+        Item item = mItems[mNext];
+        mNext = (mNext + 1) % size;
+        mQueue.remove(item);
+        mQueue.offer(item);
+        return item;
+    }
+
+    @Benchmark
+    public Item removeArbitraryBaseline() {
+        Item item = mItems[mNext];
+        mNext = (mNext + 1) % size;
+        mBaseline.remove(item);
+        mBaseline.offer(item);
+        return item;
+    }
+
+    @Benchmark
+    public List<Item> toSortedList() {
+        return mQueue.toSortedList();
+    }
+}
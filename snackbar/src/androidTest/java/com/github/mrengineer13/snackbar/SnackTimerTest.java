@@ -0,0 +1,206 @@
+package com.github.mrengineer13.snackbar;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SnackTimerTest extends TestCase {
+
+    private FakeLooper mLooper;
+
+    private SnackTimer mTimer;
+
+    private List<String> mRuns;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mLooper = new FakeLooper();
+        mTimer = new SnackTimer(mLooper, mLooper);
+        mRuns = new ArrayList<>();
+    }
+
+    public void testTasksRunInDeadlineOrder() {
+        RecordingTask late = new RecordingTask("late");
+        RecordingTask early = new RecordingTask("early");
+        RecordingTask middle = new RecordingTask("middle");
+        mTimer.schedule(late, 3000);
+        mTimer.schedule(early, 1000);
+        mTimer.schedule(middle, 2000);
+
+        mLooper.advance(999);
+        assertTrue(mRuns.isEmpty());
+
+        mLooper.advance(1);
+        assertEquals("[early]", mRuns.toString());
+        mLooper.advance(2000);
+        assertEquals("[early, middle, late]", mRuns.toString());
+        assertFalse(mTimer.isScheduled(late));
+        assertFalse(mLooper.isPosted());
+    }
+
+    public void testScheduleReplacesTheDeadline() {
+        RecordingTask task = new RecordingTask("task");
+        mTimer.schedule(task, 1000);
+        mTimer.schedule(task, 3000);
+
+        mLooper.advance(2000);
+        assertTrue(mRuns.isEmpty());
+        mLooper.advance(1000);
+        assertEquals("[task]", mRuns.toString());
+    }
+
+    public void testCancelledTaskDoesNotRun() {
+        RecordingTask cancelled = new RecordingTask("cancelled");
+        RecordingTask kept = new RecordingTask("kept");
+        mTimer.schedule(cancelled, 2000);
+        mTimer.schedule(kept, 1000);
+        mTimer.cancel(cancelled);
+
+        assertFalse(mTimer.isScheduled(cancelled));
+        mLooper.advance(5000);
+        assertEquals("[kept]", mRuns.toString());
+    }
+
+    public void testPausedTaskKeepsTheTimeItHadLeft() {
+        RecordingTask task = new RecordingTask("task");
+        mTimer.schedule(task, 1000);
+        mLooper.advance(400);
+        mTimer.pause(task);
+
+        assertTrue(task.isPaused());
+        assertFalse(mTimer.isScheduled(task));
+        mLooper.advance(5000);
+        assertTrue(mRuns.isEmpty());
+
+        mTimer.resume(task);
+        assertFalse(task.isPaused());
+        mLooper.advance(599);
+        assertTrue(mRuns.isEmpty());
+        mLooper.advance(1);
+        assertEquals("[task]", mRuns.toString());
+    }
+
+    public void testCancelForgetsAPausedTask() {
+        RecordingTask task = new RecordingTask("task");
+        mTimer.schedule(task, 1000);
+        mTimer.pause(task);
+        mTimer.cancel(task);
+        mTimer.resume(task);
+
+        mLooper.advance(5000);
+        assertTrue(mRuns.isEmpty());
+    }
+
+    public void testEarlierDeadlineMovesTheMessage() {
+        mTimer.schedule(new RecordingTask("late"), 3000);
+        assertEquals(3000, mLooper.getPostedFor());
+
+        mTimer.schedule(new RecordingTask("early"), 1000);
+        assertEquals(1000, mLooper.getPostedFor());
+        assertEquals(1, mLooper.getRemovals());
+    }
+
+    public void testLaterDeadlineFiresEarlyAndPostsAgain() {
+        RecordingTask early = new RecordingTask("early");
+        RecordingTask late = new RecordingTask("late");
+        mTimer.schedule(early, 1000);
+        mTimer.schedule(late, 3000);
+        mTimer.cancel(early);
+
+        // The message is left where it was, so cancelling never touches the looper
+        assertEquals(1000, mLooper.getPostedFor());
+        assertEquals(0, mLooper.getRemovals());
+
+        mLooper.advance(1000);
+        assertTrue(mRuns.isEmpty());
+        assertEquals(3000, mLooper.getPostedFor());
+
+        mLooper.advance(2000);
+        assertEquals("[late]", mRuns.toString());
+    }
+
+    public void testTaskMayScheduleAnotherWhileRunning() {
+        final RecordingTask next = new RecordingTask("next");
+        RecordingTask first = new RecordingTask("first") {
+            @Override
+            public void run() {
+                super.run();
+                mTimer.schedule(next, 0);
+            }
+        };
+        mTimer.schedule(first, 1000);
+
+        mLooper.advance(1000);
+        assertEquals("[first, next]", mRuns.toString());
+        assertFalse(mLooper.isPosted());
+    }
+
+    private class RecordingTask extends SnackTimer.Task {
+        private final String mName;
+
+        RecordingTask(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void run() {
+            mRuns.add(mName);
+        }
+    }
+
+    /**
+     * Holds the message of the timer and runs it once the fake clock reaches its time
+     */
+    private static class FakeLooper implements SnackTimer.Clock, SnackTimer.Scheduler {
+        private long mNow;
+
+        private Runnable mPosted;
+
+        private long mPostedFor;
+
+        private int mRemovals;
+
+        @Override
+        public long uptimeMillis() {
+            return mNow;
+        }
+
+        @Override
+        public void postAtTime(Runnable runnable, long uptimeMillis) {
+            assertNull("Only one message is posted at a time", mPosted);
+            mPosted = runnable;
+            mPostedFor = uptimeMillis;
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            if (mPosted == runnable) {
+                mPosted = null;
+                mRemovals++;
+            }
+        }
+
+        void advance(long millis) {
+            mNow += millis;
+            while (mPosted != null && mPostedFor <= mNow) {
+                Runnable posted = mPosted;
+                mPosted = null;
+                posted.run();
+            }
+        }
+
+        boolean isPosted() {
+            return mPosted != null;
+        }
+
+        long getPostedFor() {
+            return mPostedFor;
+        }
+
+        int getRemovals() {
+            return mRemovals;
+        }
+    }
+}
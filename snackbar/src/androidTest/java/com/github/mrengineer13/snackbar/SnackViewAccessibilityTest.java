@@ -0,0 +1,127 @@
+package com.github.mrengineer13.snackbar;
+
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.os.Build;
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+public class SnackViewAccessibilityTest extends AndroidTestCase {
+
+    private static final int VIEW_WIDTH = 480;
+
+    private static final SnackBarButtonParams NO_BUTTON = new SnackBarButtonParams(null, 0, null, 0);
+
+    private SnackView mView;
+
+    private View mClicked;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mClicked = null;
+        mView = new SnackView(getContext());
+        mView.setOnButtonClickListeners(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mClicked = v;
+            }
+        }, null);
+        bind(new SnackBarButtonParams("Undo", 0, null, 0), NO_BUTTON);
+    }
+
+    public void testEventReadsTheMessageAndTheButtons() {
+        AccessibilityEvent event = AccessibilityEvent.obtain(AccessibilityEvent.TYPE_VIEW_FOCUSED);
+        mView.onPopulateAccessibilityEvent(event);
+
+        assertEquals("[Message deleted, Undo]", event.getText().toString());
+    }
+
+    public void testIconOnlyButtonIsReadByWhatItDoes() {
+        int icon = android.R.drawable.ic_menu_close_clear_cancel;
+        bind(NO_BUTTON, new SnackBarButtonParams(null, icon, null, 0));
+        AccessibilityEvent event = AccessibilityEvent.obtain(AccessibilityEvent.TYPE_VIEW_FOCUSED);
+        mView.onPopulateAccessibilityEvent(event);
+
+        String description = getContext().getString(R.string.sb__cancel_button_description);
+        assertEquals("[Message deleted, " + description + "]", event.getText().toString());
+    }
+
+    public void testButtonsAreVirtualViews() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        AccessibilityNodeProvider provider = mView.getAccessibilityNodeProvider();
+
+        AccessibilityNodeInfo host = provider.createAccessibilityNodeInfo(View.NO_ID);
+        assertEquals(2, host.getChildCount());
+        assertNull(provider.createAccessibilityNodeInfo(SnackView.VIRTUAL_CANCEL));
+
+        AccessibilityNodeInfo action = provider.createAccessibilityNodeInfo(SnackView.VIRTUAL_ACTION);
+        assertEquals("Undo", action.getText().toString());
+        assertTrue(action.isClickable());
+        assertTrue((action.getActions() & AccessibilityNodeInfo.ACTION_CLICK) != 0);
+        Rect bounds = new Rect();
+        action.getBoundsInParent(bounds);
+        assertEquals(VIEW_WIDTH, bounds.right);
+
+        AccessibilityNodeInfo message = provider.createAccessibilityNodeInfo(SnackView.VIRTUAL_MESSAGE);
+        assertEquals("Message deleted", message.getText().toString());
+        assertFalse(message.isClickable());
+    }
+
+    public void testClickActionClicksTheButton() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        AccessibilityNodeProvider provider = mView.getAccessibilityNodeProvider();
+
+        int click = AccessibilityNodeInfo.ACTION_CLICK;
+
+        assertFalse(provider.performAction(SnackView.VIRTUAL_MESSAGE, click, null));
+        assertNull(mClicked);
+        assertTrue(provider.performAction(SnackView.VIRTUAL_ACTION, click, null));
+        assertSame(mView, mClicked);
+    }
+
+    public void testAccessibilityFocusMovesBetweenVirtualViews() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        AccessibilityNodeProvider provider = mView.getAccessibilityNodeProvider();
+        int focus = AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS;
+        int clearFocus = AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS;
+
+        assertTrue(provider.performAction(SnackView.VIRTUAL_MESSAGE, focus, null));
+        assertFalse(provider.performAction(SnackView.VIRTUAL_MESSAGE, focus, null));
+        assertTrue(provider.performAction(SnackView.VIRTUAL_ACTION, focus, null));
+        assertFalse(provider.performAction(SnackView.VIRTUAL_MESSAGE, clearFocus, null));
+        assertTrue(provider.performAction(SnackView.VIRTUAL_ACTION, clearFocus, null));
+    }
+
+    public void testPointsAreMappedToVirtualViews() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        AccessibilityNodeInfo action = mView.getAccessibilityNodeProvider()
+                .createAccessibilityNodeInfo(SnackView.VIRTUAL_ACTION);
+        Rect bounds = new Rect();
+        action.getBoundsInParent(bounds);
+
+        assertEquals(SnackView.VIRTUAL_ACTION, mView.findVirtualView(bounds.centerX(), bounds.centerY()));
+        assertEquals(SnackView.VIRTUAL_MESSAGE, mView.findVirtualView(1, 1));
+    }
+
+    private void bind(SnackBarButtonParams action, SnackBarButtonParams cancel) {
+        mView.bind(new Snack("Message deleted", action.intern(), cancel.intern(), null, SnackBar.MED_SNACK,
+                ColorStateList.valueOf(Color.DKGRAY), 0, 0, 0, 0, null));
+        mView.measure(MeasureSpec.makeMeasureSpec(VIEW_WIDTH, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+        mView.layout(0, 0, mView.getMeasuredWidth(), mView.getMeasuredHeight());
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.mrengineer13.snackbar;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Picture;
+import android.os.Bundle;
+import android.os.Debug;
+import android.test.InstrumentationTestCase;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.View.MeasureSpec;
+
+/**
+ * Compares a frame of the {@code sb__snack} layout with one of {@link SnackView}: binding a
+ * new snack, measuring, laying out and drawing it. Every frame shows a message that was not
+ * shown before, so both renderers lay out its text and {@link SnackTextLayouts} never has it
+ * cached. The mean time and allocations of a frame of each renderer are sent as
+ * instrumentation status and logged under {@value #TAG}.
+ */
+public class SnackViewBenchmark extends InstrumentationTestCase {
+
+    private static final String TAG = "SnackViewBenchmark";
+
+    private static final int WARM_UP_FRAMES = 100;
+
+    private static final int FRAMES = 1000;
+
+    private static final int VIEW_WIDTH = 720;
+
+    private Context mContext;
+
+    /**
+     * One snack per frame, each with its own message
+     */
+    private Snack[] mSnacks;
+
+    private int mNextSnack;
+
+    private final Picture mPicture = new Picture();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = getInstrumentation().getTargetContext();
+        ColorStateList background = ColorStateList.valueOf(Color.DKGRAY);
+        SnackBarButtonParams undo = new SnackBarButtonParams("Undo", 0, null, 0).intern();
+        SnackBarButtonParams noButton = new SnackBarButtonParams(null, 0, null, 0).intern();
+        mSnacks = new Snack[WARM_UP_FRAMES + 2 * FRAMES];
+        for (int i = 0; i < mSnacks.length; i++) {
+            String message = i % 2 == 0 ? "Message " + i + " deleted"
+                    : "Connection " + i + " lost, retrying in a few seconds";
+            mSnacks[i] = new Snack(message, undo, noButton, null, SnackBar.MED_SNACK,
+                    background, 0, 0, 0, 0, null);
+        }
+        mNextSnack = 0;
+    }
+
+    public void testLayoutRenderer() {
+        View snackView = LayoutInflater.from(mContext).inflate(R.layout.sb__snack, null);
+        measure("layout", SnackViewHolder.of(snackView));
+    }
+
+    public void testFlatRenderer() {
+        measure("flat", SnackViewHolder.of(new SnackView(mContext)));
+    }
+
+    private void measure(String renderer, SnackViewHolder views) {
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            drawFrame(views);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            drawFrame(views);
+        }
+        long nanosPerFrame = (System.nanoTime() - start) / FRAMES;
+
+        // Counted apart from the timed frames, counting slows the allocations down
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < FRAMES; i++) {
+            drawFrame(views);
+        }
+        Debug.stopAllocCounting();
+        int allocationsPerFrame = Debug.getThreadAllocCount() / FRAMES;
+
+        Bundle results = new Bundle();
+        results.putLong(renderer + "_ns_per_frame", nanosPerFrame);
+        results.putInt(renderer + "_allocations_per_frame", allocationsPerFrame);
+        getInstrumentation().sendStatus(0, results);
+        Log.i(TAG, renderer + ": " + nanosPerFrame + " ns, "
+                + allocationsPerFrame + " allocations per frame");
+    }
+
+    private void drawFrame(SnackViewHolder views) {
+        views.bind(mSnacks[mNextSnack++]);
+
+        View view = views.snackView;
+        view.measure(MeasureSpec.makeMeasureSpec(VIEW_WIDTH, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+
+        Canvas canvas = mPicture.beginRecording(view.getWidth(), view.getHeight());
+        view.draw(canvas);
+        mPicture.endRecording();
+    }
+}
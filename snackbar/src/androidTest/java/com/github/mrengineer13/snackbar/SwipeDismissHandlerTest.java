@@ -0,0 +1,151 @@
+package com.github.mrengineer13.snackbar;
+
+import android.os.Build;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+public class SwipeDismissHandlerTest extends AndroidTestCase {
+
+    private static final int MOVE_COUNT = 64;
+
+    private static final int VIEW_HEIGHT = 200;
+
+    private SwipeDismissHandler mHandler;
+
+    private View mView;
+
+    private View mDismissed;
+
+    private int mTouchSlop;
+
+    private long mDownTime;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mTouchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        mDownTime = SystemClock.uptimeMillis();
+        mView = new View(getContext());
+        mView.layout(0, 0, 400, VIEW_HEIGHT);
+        mDismissed = null;
+        mHandler = new SwipeDismissHandler(getContext(), new SwipeDismissHandler.OnDismissListener() {
+            @Override
+            public void onDismiss(View snackView) {
+                mDismissed = snackView;
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mHandler.release();
+        super.tearDown();
+    }
+
+    public void testMoveDoesNotAllocate() {
+        MotionEvent down = obtain(MotionEvent.ACTION_DOWN, 0, 0);
+        MotionEvent cancel = obtain(MotionEvent.ACTION_CANCEL, 0, 0);
+        MotionEvent[] moves = new MotionEvent[MOVE_COUNT];
+        for (int i = 0; i < MOVE_COUNT; i++) {
+            moves[i] = obtain(MotionEvent.ACTION_MOVE, i + 1, i * 2);
+        }
+
+        // A first gesture creates the velocity tracker and loads the classes involved
+        replay(down, moves, cancel);
+
+        mHandler.onTouch(mView, down);
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (MotionEvent move : moves) {
+            mHandler.onTouch(mView, move);
+        }
+        Debug.stopAllocCounting();
+        int allocations = Debug.getThreadAllocCount();
+        mHandler.onTouch(mView, cancel);
+
+        assertEquals("Allocations during " + MOVE_COUNT + " move events", 0, allocations);
+
+        recycle(down, moves, cancel);
+    }
+
+    public void testDragPastHalfTheHeightDismisses() {
+        int distance = mTouchSlop + VIEW_HEIGHT / 2 + 1;
+        MotionEvent down = obtain(MotionEvent.ACTION_DOWN, 0, 0);
+        MotionEvent move = obtain(MotionEvent.ACTION_MOVE, distance, 1000);
+        MotionEvent up = obtain(MotionEvent.ACTION_UP, distance, 1000);
+
+        mHandler.onTouch(mView, down);
+        mHandler.onTouch(mView, move);
+        mHandler.onTouch(mView, up);
+
+        assertSame(mView, mDismissed);
+        recycle(down, new MotionEvent[] {move}, up);
+    }
+
+    public void testShortSlowDragSlidesBack() {
+        int distance = mTouchSlop + VIEW_HEIGHT / 4;
+        MotionEvent down = obtain(MotionEvent.ACTION_DOWN, 0, 0);
+        MotionEvent move = obtain(MotionEvent.ACTION_MOVE, distance, 2000);
+        MotionEvent up = obtain(MotionEvent.ACTION_UP, distance, 2000);
+
+        mHandler.onTouch(mView, down);
+        mHandler.onTouch(mView, move);
+        mHandler.onTouch(mView, up);
+
+        assertNull(mDismissed);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            assertEquals(0f, mView.getTranslationY(), 0f);
+        }
+        recycle(down, new MotionEvent[] {move}, up);
+    }
+
+    public void testSecondLaneIsIgnoredWhileTheFirstIsSwiped() {
+        View otherLane = new View(getContext());
+        otherLane.layout(0, VIEW_HEIGHT, 400, 2 * VIEW_HEIGHT);
+        int distance = mTouchSlop + VIEW_HEIGHT / 2 + 1;
+        MotionEvent down = obtain(MotionEvent.ACTION_DOWN, 0, 0);
+        MotionEvent otherDown = obtain(MotionEvent.ACTION_DOWN, VIEW_HEIGHT, 500);
+        MotionEvent move = obtain(MotionEvent.ACTION_MOVE, distance, 1000);
+        MotionEvent otherMove = obtain(MotionEvent.ACTION_MOVE, VIEW_HEIGHT + 1, 1000);
+        MotionEvent up = obtain(MotionEvent.ACTION_UP, distance, 1000);
+
+        assertTrue(mHandler.onTouch(mView, down));
+        assertFalse(mHandler.onTouch(otherLane, otherDown));
+        assertTrue(mHandler.onTouch(mView, move));
+        assertFalse(mHandler.onTouch(otherLane, otherMove));
+        assertTrue(mHandler.onTouch(mView, up));
+
+        assertSame(mView, mDismissed);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            assertEquals(0f, otherLane.getTranslationY(), 0f);
+        }
+
+        // Once the first gesture is over the other lane can be swiped again
+        assertTrue(mHandler.onTouch(otherLane, otherDown));
+        recycle(down, new MotionEvent[] {otherDown, move, otherMove}, up);
+    }
+
+    private void replay(MotionEvent first, MotionEvent[] moves, MotionEvent last) {
+        mHandler.onTouch(mView, first);
+        for (MotionEvent move : moves) {
+            mHandler.onTouch(mView, move);
+        }
+        mHandler.onTouch(mView, last);
+    }
+
+    private static void recycle(MotionEvent first, MotionEvent[] moves, MotionEvent last) {
+        first.recycle();
+        for (MotionEvent move : moves) {
+            move.recycle();
+        }
+        last.recycle();
+    }
+
+    private MotionEvent obtain(int action, float y, long eventTimeOffset) {
+        return MotionEvent.obtain(mDownTime, mDownTime + eventTimeOffset, action, 0, y, 0);
+    }
+}
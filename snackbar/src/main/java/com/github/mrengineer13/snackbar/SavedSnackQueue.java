@@ -0,0 +1,297 @@
+package com.github.mrengineer13.snackbar;
+
+import android.content.res.ColorStateList;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The pending snacks of a {@link SnackContainer} as written to its saved instance state.
+ * <p>
+ * Rather than parcelling every {@link Snack} on its own, which repeats the class names of the
+ * snack, both button params and every {@link ColorStateList}, the queue is written as one
+ * versioned record. Messages, titles, button params and colors are each written once, the
+ * first time a snack refers to them, and are referred to by index afterwards. Colors that were
+ * resolved from a resource only keep the resource id and are resolved again on restore, which
+ * also picks up the colors of the new configuration. Snacks are dropped from the end of the
+ * queue once the record grows past {@link #MAX_SAVED_BYTES}.
+ * <p>
+ * Each snack also keeps the id it was journaled under, so the restored queue goes on using the
+ * records the {@link SnackJournal} already holds instead of journaling the snacks again.
+ */
+class SavedSnackQueue implements Parcelable {
+
+    private static final int VERSION = 1;
+
+    /**
+     * Saved state shares the binder transaction buffer with the rest of the activity state
+     */
+    static final int MAX_SAVED_BYTES = 32 * 1024;
+
+    private static final int NULL_REF = -1;
+
+    private static final int END_OF_QUEUE = 0;
+    private static final int NEXT_SNACK = 1;
+
+    private final Snack[] mSnacks;
+
+    /**
+     * The journal id of each snack, 0 for snacks that are not journaled
+     */
+    private final long[] mJournalIds;
+
+    SavedSnackQueue(Snack[] snacks, long[] journalIds) {
+        mSnacks = snacks;
+        mJournalIds = journalIds;
+    }
+
+    SavedSnackQueue(Parcel in) {
+        int version = in.readInt();
+        int length = in.readInt();
+        if (version != VERSION) {
+            // Written by a version we do not know how to read, skip it and restore nothing
+            in.setDataPosition(in.dataPosition() + length);
+            mSnacks = new Snack[0];
+            mJournalIds = new long[0];
+            return;
+        }
+
+        ArrayList<Object> strings = new ArrayList<>();
+        ArrayList<Object> params = new ArrayList<>();
+        ArrayList<Object> colors = new ArrayList<>();
+        ArrayList<Snack> snacks = new ArrayList<>();
+        ArrayList<Long> journalIds = new ArrayList<>();
+        ClassLoader loader = SavedSnackQueue.class.getClassLoader();
+
+        while (in.readInt() == NEXT_SNACK) {
+            String message = readString(in, strings);
+            SnackBarButtonParams actionParams = readButtonParams(in, params, strings, colors);
+            SnackBarButtonParams cancelParams = readButtonParams(in, params, strings, colors);
+            Parcelable token = in.readParcelable(loader);
+            short duration = (short) in.readInt();
+            SavedColor color = readColor(in, colors);
+            int height = in.readInt();
+            int priority = in.readInt();
+            int timeToLive = in.readInt();
+            String key = readString(in, strings);
+            journalIds.add(in.readLong());
+
+            snacks.add(new Snack(message, actionParams, cancelParams, token, duration,
+                    color != null ? color.colors : null, color != null ? color.colorId : 0,
+                    height, priority, timeToLive, key));
+        }
+        mSnacks = snacks.toArray(new Snack[snacks.size()]);
+        mJournalIds = new long[journalIds.size()];
+        for (int i = 0; i < mJournalIds.length; i++) {
+            mJournalIds[i] = journalIds.get(i);
+        }
+    }
+
+    boolean isEmpty() {
+        return mSnacks.length == 0;
+    }
+
+    /**
+     * Returns the saved snacks, resolving the colors that were saved as resource ids
+     *
+     * @param styleCache the cache of the resources to resolve colors from
+     * @return the snacks in the order they were saved
+     */
+    Snack[] getSnacks(SnackStyleCache styleCache) {
+        Snack[] snacks = new Snack[mSnacks.length];
+        for (int i = 0; i < mSnacks.length; i++) {
+            snacks[i] = mSnacks[i].resolveColors(styleCache);
+        }
+        return snacks;
+    }
+
+    /**
+     * Returns the id the snack at the given index was journaled under
+     *
+     * @param index the index of the snack in {@link #getSnacks(SnackStyleCache)}
+     * @return the journal id, or 0 if the snack was not journaled
+     */
+    long getJournalId(int index) {
+        return mJournalIds[index];
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel out, int flags) {
+        final int start = out.dataPosition();
+        out.writeInt(VERSION);
+        final int lengthPosition = out.dataPosition();
+        out.writeInt(0);
+
+        HashMap<Object, Integer> strings = new HashMap<>();
+        HashMap<Object, Integer> params = new HashMap<>();
+        HashMap<Object, Integer> colors = new HashMap<>();
+
+        for (int i = 0; i < mSnacks.length; i++) {
+            Snack snack = mSnacks[i];
+            int snackStart = out.dataPosition();
+
+            out.writeInt(NEXT_SNACK);
+            writeString(out, strings, snack.mMessage);
+            writeButtonParams(out, params, strings, colors, snack.mActionButtonParams);
+            writeButtonParams(out, params, strings, colors, snack.mCancelButtonParams);
+            out.writeParcelable(snack.mToken, flags);
+            out.writeInt((int) snack.mDuration);
+            writeColor(out, colors, snack.mBackgroundColor, snack.mBackgroundColorId);
+            out.writeInt(snack.mHeight);
+            out.writeInt(snack.mPriority);
+            out.writeInt(snack.mTimeToLive);
+            writeString(out, strings, snack.mKey);
+            out.writeLong(mJournalIds[i]);
+
+            // The showing snack is always kept, the rest only while they fit
+            if (i > 0 && out.dataPosition() - start > MAX_SAVED_BYTES) {
+                out.setDataSize(snackStart);
+                out.setDataPosition(snackStart);
+                break;
+            }
+        }
+        out.writeInt(END_OF_QUEUE);
+
+        final int end = out.dataPosition();
+        out.setDataPosition(lengthPosition);
+        out.writeInt(end - lengthPosition - 4);
+        out.setDataPosition(end);
+    }
+
+    /*
+     * Shared Values *
+     */
+
+    /**
+     * Writes the index of the value, followed by the value itself when this is its first use
+     *
+     * @return true if the caller has to write the value
+     */
+    private static boolean writeRef(Parcel out, HashMap<Object, Integer> table, Object value) {
+        if (value == null) {
+            out.writeInt(NULL_REF);
+            return false;
+        }
+        Integer index = table.get(value);
+        if (index != null) {
+            out.writeInt(index);
+            return false;
+        }
+        index = table.size();
+        table.put(value, index);
+        out.writeInt(index);
+        return true;
+    }
+
+    private static void writeString(Parcel out, HashMap<Object, Integer> strings, String value) {
+        if (writeRef(out, strings, value)) {
+            out.writeString(value);
+        }
+    }
+
+    private static void writeButtonParams(Parcel out, HashMap<Object, Integer> params,
+                                          HashMap<Object, Integer> strings, HashMap<Object, Integer> colors,
+                                          SnackBarButtonParams value) {
+        if (writeRef(out, params, value)) {
+            writeString(out, strings, value.mTitle);
+            out.writeInt(value.mIcon);
+            writeColor(out, colors, value.mTextColor, value.mTextColorId);
+        }
+    }
+
+    private static void writeColor(Parcel out, HashMap<Object, Integer> colors, ColorStateList value,
+                                   int colorId) {
+        if (value == null && colorId == 0) {
+            out.writeInt(NULL_REF);
+            return;
+        }
+        // Colors from resources are shared by id, the others by instance
+        Object key = colorId != 0 ? Integer.valueOf(colorId) : value;
+        if (writeRef(out, colors, key)) {
+            out.writeInt(colorId);
+            if (colorId == 0) {
+                value.writeToParcel(out, 0);
+            }
+        }
+    }
+
+    private static int readRef(Parcel in, ArrayList<Object> table) {
+        int index = in.readInt();
+        if (index != NULL_REF && index > table.size()) {
+            throw new IllegalStateException("Corrupt saved snack queue");
+        }
+        return index;
+    }
+
+    private static String readString(Parcel in, ArrayList<Object> strings) {
+        int index = readRef(in, strings);
+        if (index == NULL_REF) {
+            return null;
+        }
+        if (index == strings.size()) {
+            strings.add(in.readString());
+        }
+        return (String) strings.get(index);
+    }
+
+    private static SnackBarButtonParams readButtonParams(Parcel in, ArrayList<Object> params,
+                                                         ArrayList<Object> strings, ArrayList<Object> colors) {
+        int index = readRef(in, params);
+        if (index == NULL_REF) {
+            return null;
+        }
+        if (index == params.size()) {
+            String title = readString(in, strings);
+            int icon = in.readInt();
+            SavedColor color = readColor(in, colors);
+
+            params.add(new SnackBarButtonParams(title, icon, color != null ? color.colors : null,
+                    color != null ? color.colorId : 0).intern());
+        }
+        return (SnackBarButtonParams) params.get(index);
+    }
+
+    private static SavedColor readColor(Parcel in, ArrayList<Object> colors) {
+        int index = readRef(in, colors);
+        if (index == NULL_REF) {
+            return null;
+        }
+        if (index == colors.size()) {
+            int colorId = in.readInt();
+            ColorStateList value = colorId == 0 ? ColorStateList.CREATOR.createFromParcel(in) : null;
+            colors.add(new SavedColor(colorId, value));
+        }
+        return (SavedColor) colors.get(index);
+    }
+
+    /**
+     * A color read back from the parcel, either a resource id still to be resolved or the
+     * colors themselves
+     */
+    private static class SavedColor {
+        final int colorId;
+        final ColorStateList colors;
+
+        SavedColor(int colorId, ColorStateList colors) {
+            this.colorId = colorId;
+            this.colors = colors;
+        }
+    }
+
+    public static final Parcelable.Creator<SavedSnackQueue> CREATOR = new Parcelable.Creator<SavedSnackQueue>() {
+        public SavedSnackQueue createFromParcel(Parcel in) {
+            return new SavedSnackQueue(in);
+        }
+
+        public SavedSnackQueue[] newArray(int size) {
+            return new SavedSnackQueue[size];
+        }
+    };
+}
@@ -1,10 +1,13 @@
 package com.github.mrengineer13.snackbar;
 
 import android.content.res.ColorStateList;
-import android.os.Parcel;
 import android.os.Parcelable;
 
-class Snack implements Parcelable {
+/**
+ * A message waiting in or shown by a {@link SnackContainer}. Snacks are parceled as part of a
+ * {@link SavedSnackQueue} and written to disk by {@link SnackJournal}, never on their own.
+ */
+class Snack {
 
     final String mMessage;
 
@@ -18,53 +21,71 @@ class Snack implements Parcelable {
 
     final ColorStateList mBackgroundColor;
 
+    /**
+     * The resource the background color was resolved from, or 0 when it is not known
+     */
+    final int mBackgroundColorId;
+
     final int mHeight;
 
+    final int mPriority;
+
+    /**
+     * How long the snack may wait in the queue before it is dropped unseen, 0 to wait forever
+     */
+    final int mTimeToLive;
+
+    /**
+     * Identifies the snack while it is queued, so it can be replaced or canceled, or null
+     */
+    final String mKey;
+
     Snack(String message, SnackBarButtonParams actionButtonParams, SnackBarButtonParams cancelButtonParams,
           Parcelable token, short duration,
-          ColorStateList backgroundColor, int height) {
+          ColorStateList backgroundColor, int backgroundColorId, int height, int priority, int timeToLive,
+          String key) {
         this.mMessage = message;
         mActionButtonParams = actionButtonParams;
         mCancelButtonParams = cancelButtonParams;
         mToken = token;
         mDuration = duration;
         mBackgroundColor = backgroundColor;
+        mBackgroundColorId = backgroundColorId;
         mHeight = height;
+        mPriority = priority;
+        mTimeToLive = timeToLive;
+        mKey = key;
     }
-    // reads data from parcel
-    Snack(Parcel p) {
-        mMessage = p.readString();
-        mActionButtonParams = p.readParcelable(p.getClass().getClassLoader());
-        mCancelButtonParams = p.readParcelable(p.getClass().getClassLoader());
-        mToken = p.readParcelable(p.getClass().getClassLoader());
-        mDuration = (short) p.readInt();
-        mBackgroundColor = p.readParcelable(p.getClass().getClassLoader());
-        mHeight = p.readInt();
-    }
-
-    // writes data to parcel
-    public void writeToParcel(Parcel out, int flags) {
-        out.writeString(mMessage);
-        out.writeParcelable(mActionButtonParams, 0);
-        out.writeParcelable(mCancelButtonParams, 0);
-        out.writeParcelable(mToken, 0);
-        out.writeInt((int) mDuration);
-        out.writeParcelable(mBackgroundColor, 0);
-        out.writeInt(mHeight);
-    }
+    /**
+     * Returns this snack with the colors that are only known by resource id resolved, for
+     * snacks read back from saved state
+     *
+     * @param styleCache the cache of the resources to resolve colors from
+     * @return this snack, or a copy of it if a color had to be resolved
+     */
+    Snack resolveColors(SnackStyleCache styleCache) {
+        SnackBarButtonParams actionButtonParams = resolveTextColor(mActionButtonParams, styleCache);
+        SnackBarButtonParams cancelButtonParams = resolveTextColor(mCancelButtonParams, styleCache);
+        ColorStateList background = mBackgroundColor;
+        if (background == null) {
+            background = mBackgroundColorId != 0
+                    ? styleCache.getColorStateList(mBackgroundColorId)
+                    : styleCache.getDefaultBackgroundColor();
+        }
+        if (actionButtonParams == mActionButtonParams && cancelButtonParams == mCancelButtonParams
+                && background == mBackgroundColor) {
+            return this;
+        }
 
-    public int describeContents() {
-        return 0;
+        return new Snack(mMessage, actionButtonParams, cancelButtonParams, mToken, mDuration, background,
+                mBackgroundColorId, mHeight, mPriority, mTimeToLive, mKey);
     }
 
-    // creates snack array
-    public static final Parcelable.Creator<Snack> CREATOR = new Parcelable.Creator<Snack>() {
-        public Snack createFromParcel(Parcel in) {
-            return new Snack(in);
+    private static SnackBarButtonParams resolveTextColor(SnackBarButtonParams params, SnackStyleCache styleCache) {
+        if (params != null && params.mTextColor == null && params.mTextColorId != 0) {
+            return params.withTextColor(styleCache.getColorStateList(params.mTextColorId), params.mTextColorId)
+                    .intern();
         }
-
-        public Snack[] newArray(int size) {
-            return new Snack[size];
-        }
-    };
+        return params;
+    }
 }
@@ -0,0 +1,336 @@
+package com.github.mrengineer13.snackbar;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ObjectAnimator;
+import android.animation.PropertyValuesHolder;
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.animation.AlphaAnimation;
+import android.view.animation.Animation;
+import android.view.animation.AnimationSet;
+import android.view.animation.TranslateAnimation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Runs the enter and exit transitions of the snack views shown by a {@link SnackContainer}.
+ */
+abstract class SnackAnimator {
+
+    static final int ANIMATION_DURATION = 300;
+
+    /**
+     * Gets told when an exit transition has finished and the snack view can be removed
+     */
+    interface OnHiddenListener {
+        void onHidden(View snackView);
+    }
+
+    final OnHiddenListener mHiddenListener;
+
+    SnackFrameMonitor mFrameMonitor;
+
+    SnackAnimator(OnHiddenListener hiddenListener) {
+        mHiddenListener = hiddenListener;
+    }
+
+    /**
+     * Picks property animations on API 12 and up, falling back to view animations on the
+     * container for older platforms
+     */
+    static SnackAnimator create(View container, OnHiddenListener hiddenListener) {
+        if (animatesViews()) {
+            return new PropertySnackAnimator(hiddenListener);
+        }
+        return new LegacySnackAnimator(container, hiddenListener);
+    }
+
+    /**
+     * Whether every snack view is animated on its own, which showing several snacks at once
+     * depends on
+     */
+    static boolean animatesViews() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1;
+    }
+
+    /**
+     * Sets the monitor told about the frames of every transition, only property animations
+     * are monitored
+     *
+     * @param frameMonitor the monitor, or null to stop monitoring
+     */
+    void setFrameMonitor(SnackFrameMonitor frameMonitor) {
+        mFrameMonitor = frameMonitor;
+    }
+
+    abstract void animateIn(View snackView, boolean immediately);
+
+    abstract void animateOut(View snackView);
+
+    /**
+     * Slides a snack view that moved to another lane from where it was drawn before
+     *
+     * @param snackView the view that moved
+     * @param fromTranslationY how far its old position is from its new one
+     */
+    abstract void animateShift(View snackView, float fromTranslationY);
+
+    abstract void cancel();
+
+    /**
+     * Jumps the running transitions to their end without drawing them, for a window that is
+     * no longer visible
+     */
+    abstract void finish();
+
+    /**
+     * Animates {@code translationY} and {@code alpha} of each snack view alone, on a hardware
+     * layer for the duration of the transition, so the rest of the window is not redrawn
+     * every frame.
+     */
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB_MR1)
+    static class PropertySnackAnimator extends SnackAnimator {
+
+        private final HashMap<View, Animator> mRunning = new HashMap<>();
+
+        private final ArrayList<View> mPendingViews = new ArrayList<>();
+
+        /**
+         * Whether the running transitions are being ended early, which are not worth reporting
+         */
+        private boolean mFinishing;
+
+        PropertySnackAnimator(OnHiddenListener hiddenListener) {
+            super(hiddenListener);
+        }
+
+        @Override
+        void animateIn(final View snackView, boolean immediately) {
+            cancel(snackView);
+            if (immediately) {
+                snackView.setTranslationY(0);
+                snackView.setAlpha(1);
+                return;
+            }
+
+            snackView.setAlpha(0);
+            if (snackView.getHeight() > 0) {
+                startIn(snackView);
+                return;
+            }
+
+            // The view has not been laid out yet, wait until its height is known
+            mPendingViews.add(snackView);
+            snackView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    snackView.getViewTreeObserver().removeOnPreDrawListener(this);
+                    if (mPendingViews.remove(snackView)) {
+                        startIn(snackView);
+                    }
+                    return true;
+                }
+            });
+        }
+
+        private void startIn(View snackView) {
+            snackView.setTranslationY(snackView.getHeight());
+            start(snackView, false, true, PropertyValuesHolder.ofFloat("translationY", 0),
+                    PropertyValuesHolder.ofFloat("alpha", 1));
+        }
+
+        @Override
+        void animateOut(View snackView) {
+            cancel(snackView);
+            start(snackView, true, true, PropertyValuesHolder.ofFloat("translationY", snackView.getHeight()),
+                    PropertyValuesHolder.ofFloat("alpha", 0));
+        }
+
+        @Override
+        void animateShift(View snackView, float fromTranslationY) {
+            if (mRunning.containsKey(snackView) || mPendingViews.contains(snackView)) {
+                // Already sliding in or out, which ends relative to the new position anyway
+                return;
+            }
+            snackView.setTranslationY(fromTranslationY);
+            start(snackView, false, false, PropertyValuesHolder.ofFloat("translationY", 0));
+        }
+
+        private void start(final View snackView, final boolean hiding, boolean monitored,
+                           PropertyValuesHolder... values) {
+            ObjectAnimator animator = ObjectAnimator.ofPropertyValuesHolder(snackView, values);
+            animator.setDuration(ANIMATION_DURATION);
+            animator.addListener(new AnimatorListenerAdapter() {
+                private boolean mCanceled;
+
+                @Override
+                public void onAnimationCancel(Animator animation) {
+                    mCanceled = true;
+                }
+
+                @Override
+                public void onAnimationEnd(Animator animation) {
+                    snackView.setLayerType(View.LAYER_TYPE_NONE, null);
+                    if (mRunning.get(snackView) == animation) {
+                        mRunning.remove(snackView);
+                    }
+                    if (mFrameMonitor != null) {
+                        mFrameMonitor.stop(animation, !mCanceled && !mFinishing);
+                    }
+                    if (hiding && !mCanceled) {
+                        mHiddenListener.onHidden(snackView);
+                    }
+                }
+            });
+
+            snackView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            mRunning.put(snackView, animator);
+            if (monitored && mFrameMonitor != null) {
+                mFrameMonitor.start(animator, !hiding);
+            }
+            animator.start();
+        }
+
+        private void cancel(View snackView) {
+            mPendingViews.remove(snackView);
+            Animator running = mRunning.remove(snackView);
+            if (running != null) {
+                running.cancel();
+            }
+        }
+
+        @Override
+        void cancel() {
+            mPendingViews.clear();
+            if (mRunning.isEmpty()) {
+                return;
+            }
+            ArrayList<Animator> running = new ArrayList<>(mRunning.values());
+            mRunning.clear();
+            for (Animator animator : running) {
+                animator.cancel();
+            }
+        }
+
+        @Override
+        void finish() {
+            if (mRunning.isEmpty()) {
+                return;
+            }
+            // Views still waiting to be drawn start sliding in once the window shows again
+            ArrayList<Animator> running = new ArrayList<>(mRunning.values());
+            mFinishing = true;
+            try {
+                for (Animator animator : running) {
+                    animator.end();
+                }
+            } finally {
+                mFinishing = false;
+            }
+        }
+    }
+
+    /**
+     * Slides and fades the whole container with view animations, for platforms without
+     * property animations. Only one snack is shown at a time there.
+     */
+    static class LegacySnackAnimator extends SnackAnimator {
+
+        private final View mContainer;
+
+        private final AnimationSet mInAnimationSet;
+        private final AnimationSet mOutAnimationSet;
+
+        private View mHidingView;
+
+        LegacySnackAnimator(View container, OnHiddenListener hiddenListener) {
+            super(hiddenListener);
+            mContainer = container;
+
+            mInAnimationSet = new AnimationSet(false);
+
+            TranslateAnimation mSlideInAnimation = new TranslateAnimation(
+                    TranslateAnimation.RELATIVE_TO_PARENT, 0.0f,
+                    TranslateAnimation.RELATIVE_TO_PARENT, 0.0f,
+                    TranslateAnimation.RELATIVE_TO_SELF, 1.0f,
+                    TranslateAnimation.RELATIVE_TO_SELF, 0.0f);
+
+            AlphaAnimation mFadeInAnimation = new AlphaAnimation(0.0f, 1.0f);
+
+            mInAnimationSet.addAnimation(mSlideInAnimation);
+            mInAnimationSet.addAnimation(mFadeInAnimation);
+
+            mOutAnimationSet = new AnimationSet(false);
+
+            TranslateAnimation mSlideOutAnimation = new TranslateAnimation(
+                    TranslateAnimation.RELATIVE_TO_PARENT, 0.0f,
+                    TranslateAnimation.RELATIVE_TO_PARENT, 0.0f,
+                    TranslateAnimation.RELATIVE_TO_SELF, 0.0f,
+                    TranslateAnimation.RELATIVE_TO_SELF, 1.0f);
+
+            AlphaAnimation mFadeOutAnimation = new AlphaAnimation(1.0f, 0.0f);
+
+            mOutAnimationSet.addAnimation(mSlideOutAnimation);
+            mOutAnimationSet.addAnimation(mFadeOutAnimation);
+
+            mOutAnimationSet.setDuration(ANIMATION_DURATION);
+            mOutAnimationSet.setAnimationListener(new Animation.AnimationListener() {
+                @Override
+                public void onAnimationStart(Animation animation) {
+
+                }
+
+                @Override
+                public void onAnimationEnd(Animation animation) {
+                    View hidden = mHidingView;
+                    mHidingView = null;
+                    if (hidden != null) {
+                        mHiddenListener.onHidden(hidden);
+                    }
+                }
+
+                @Override
+                public void onAnimationRepeat(Animation animation) {
+
+                }
+            });
+        }
+
+        @Override
+        void animateIn(View snackView, boolean immediately) {
+            if (immediately) {
+                mInAnimationSet.setDuration(0);
+            } else {
+                mInAnimationSet.setDuration(ANIMATION_DURATION);
+            }
+            mContainer.startAnimation(mInAnimationSet);
+        }
+
+        @Override
+        void animateOut(View snackView) {
+            mHidingView = snackView;
+            mContainer.startAnimation(mOutAnimationSet);
+        }
+
+        @Override
+        void animateShift(View snackView, float fromTranslationY) {
+            // Snacks are never stacked without property animations
+        }
+
+        @Override
+        void finish() {
+            // View animations only advance while the window draws, so they already wait
+        }
+
+        @Override
+        void cancel() {
+            mHidingView = null;
+            mInAnimationSet.cancel();
+            mOutAnimationSet.cancel();
+        }
+    }
+}
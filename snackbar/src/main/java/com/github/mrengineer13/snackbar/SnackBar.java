@@ -20,17 +20,24 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.res.ColorStateList;
-import android.graphics.PixelFormat;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcelable;
-import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.WindowManager;
-import android.widget.LinearLayout;
-import android.widget.TextView;
+import android.view.ViewStub;
 
+import java.util.List;
+
+/**
+ * Shows messages at the bottom of an activity, a view or a floating window. The SnackBar of a
+ * host is shared: every {@link Builder} for the same activity or view queues its message in the
+ * same place, so the settings below, such as the queue limit or stacked mode, are host-wide and
+ * hold for every message on that host whichever builder queued it. A {@link Builder} only sets
+ * up the one message it shows.
+ */
 public class SnackBar {
 
     public static final short LONG_SNACK = 5000;
@@ -41,16 +48,71 @@ public class SnackBar {
 
     public static final short PERMANENT_SNACK = 0;
 
+    public static final int PRIORITY_LOW = -1;
+
+    public static final int PRIORITY_NORMAL = 0;
+
+    public static final int PRIORITY_HIGH = 1;
+
     private SnackContainer mSnackContainer;
 
     private View mParentView;
 
+    /**
+     * The view the SnackBar is inflated into once the first message is shown, when inflation
+     * was deferred
+     */
+    private ViewGroup mDeferredHost;
+
+    /**
+     * The journal pending messages are written to, or null if they only live in memory
+     */
+    private SnackJournal mJournal;
+
     private OnMessageClickListener mClickListener;
 
     private OnCancelClickListener mCancelClickListener;
 
     private OnVisibilityChangeListener mVisibilityChangeListener;
 
+    public interface OnOverflowListener {
+
+        /**
+         * Gets called when a message is dropped or collapsed because the queue is full
+         *
+         * @param overflowCount the number of messages dropped or collapsed since the queue was
+         *                      last below its limit
+         */
+        void onOverflow(int overflowCount);
+    }
+
+    public interface OnExpiredListener {
+
+        /**
+         * Gets called when a message is dropped unseen because it waited in the queue for longer
+         * than its time to live
+         *
+         * @param token the token of the message
+         * @param stackSize the number of messages left to show
+         */
+        void onExpired(Parcelable token, int stackSize);
+    }
+
+    public interface OnFrameStatsListener {
+
+        /**
+         * Gets called when a message has finished sliding in or out, on API 16 and up
+         *
+         * @param entering true if the message slid in, false if it slid out
+         * @param frameCount the number of frames drawn during the transition
+         * @param droppedFrames the number of frames skipped because drawing took too long
+         * @param durationMillis the time between the first and the last frame
+         * @param worstFrameMillis the longest time between two frames
+         */
+        void onFrameStats(boolean entering, int frameCount, int droppedFrames, long durationMillis,
+                          long worstFrameMillis);
+    }
+
     public interface OnCancelClickListener {
 
         void onCancelClick();
@@ -79,43 +141,174 @@ public class SnackBar {
     }
 
     public SnackBar(Activity activity) {
+        this(activity, false);
+    }
+
+    /**
+     * Constructs a new SnackBar
+     *
+     * @param activity the activity to inflate into
+     * @param deferInflation true to only add a placeholder now and inflate the SnackBar when
+     *                       the first message is shown
+     */
+    public SnackBar(Activity activity, boolean deferInflation) {
         ViewGroup container = (ViewGroup) activity.findViewById(android.R.id.content);
+        if (deferInflation) {
+            defer(activity, container);
+            return;
+        }
         View v = activity.getLayoutInflater().inflate(R.layout.sb__snack, container, false);
         init(container, v);
     }
 
     public SnackBar(Context context, View v) {
+        this(context, v, false);
+    }
+
+    /**
+     * Constructs a new SnackBar
+     *
+     * @param context the context used to obtain resources
+     * @param v the view to inflate the SnackBar into
+     * @param deferInflation true to only add a placeholder now and inflate the SnackBar when
+     *                       the first message is shown
+     */
+    public SnackBar(Context context, View v, boolean deferInflation) {
+        if (deferInflation) {
+            defer(context, (ViewGroup) v);
+            return;
+        }
         LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        inflater.inflate(R.layout.sb__snack_container, ((ViewGroup) v));
+        if (v.findViewById(R.id.snackContainer) == null && v.findViewById(R.id.snackContainerStub) == null) {
+            inflater.inflate(R.layout.sb__snack_container, ((ViewGroup) v));
+        }
         View snackLayout = inflater.inflate(R.layout.sb__snack, ((ViewGroup) v), false);
         init((ViewGroup) v, snackLayout);
     }
 
+    private void defer(Context context, ViewGroup host) {
+        mDeferredHost = host;
+        if (host.findViewById(R.id.snackContainer) == null && host.findViewById(R.id.snackContainerStub) == null) {
+            ViewStub stub = new ViewStub(context, R.layout.sb__snack_container);
+            stub.setId(R.id.snackContainerStub);
+            stub.setTag(R.id.sharedSnackBar, this);
+            host.addView(stub, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+    }
+
+    /**
+     * Inflates a deferred SnackBar, must be called on the main thread
+     */
+    private void ensureInflated() {
+        if (mDeferredHost == null) {
+            return;
+        }
+        ViewGroup host = mDeferredHost;
+        mDeferredHost = null;
+
+        View v = LayoutInflater.from(host.getContext()).inflate(R.layout.sb__snack, host, false);
+        init(host, v);
+    }
+
     private void init(ViewGroup container, View v) {
         mSnackContainer = (SnackContainer) container.findViewById(R.id.snackContainer);
         if (mSnackContainer == null) {
-            mSnackContainer = new SnackContainer(container);
+            ViewStub stub = (ViewStub) container.findViewById(R.id.snackContainerStub);
+            if (stub != null) {
+                mSnackContainer = (SnackContainer) stub.inflate().findViewById(R.id.snackContainer);
+            } else {
+                mSnackContainer = new SnackContainer(container);
+            }
         }
 
         mParentView = v;
-        TextView snackBtn = (TextView) v.findViewById(R.id.snackButton);
-        snackBtn.setOnClickListener(mButtonListener);
+        mSnackContainer.offerSnackView(v);
+        if (mJournal != null) {
+            mSnackContainer.setJournal(mJournal);
+        }
 
-        TextView snackCancelBtn = (TextView) v.findViewById(R.id.snackCancelButton);
-        snackCancelBtn.setOnClickListener(mCancelListener);
+        if (mSnackContainer.getTag(R.id.sharedSnackBar) == null) {
+            mSnackContainer.setTag(R.id.sharedSnackBar, this);
+        }
+    }
+
+    /**
+     * Returns the SnackBar shared by the activity's content view, creating it on first use.
+     * This is the SnackBar the builders of the activity show their messages in, so it is where
+     * host-wide settings are made.
+     *
+     * @param activity the activity to inflate into
+     * @return the shared SnackBar
+     */
+    public static SnackBar obtain(Activity activity) {
+        SnackBar snackBar = findShared(activity.findViewById(android.R.id.content));
+        if (snackBar == null) {
+            return new SnackBar(activity);
+        }
+        snackBar.ensureInflated();
+        return snackBar;
+    }
+
+    /**
+     * Returns the SnackBar shared by the given view, creating it on first use
+     *
+     * @param context the context used to obtain resources
+     * @param v the view to inflate the SnackBar into
+     * @return the shared SnackBar
+     */
+    public static SnackBar obtain(Context context, View v) {
+        SnackBar snackBar = findShared(v);
+        if (snackBar == null) {
+            return new SnackBar(context, v);
+        }
+        snackBar.ensureInflated();
+        return snackBar;
+    }
+
+    /**
+     * Looks up the SnackBar registered on the {@link SnackContainer} of the given host, or on
+     * its placeholder while inflation is deferred. The container forgets it once it is
+     * detached from the window.
+     */
+    private static SnackBar findShared(View host) {
+        View snackContainer = host.findViewById(R.id.snackContainer);
+        if (snackContainer == null) {
+            snackContainer = host.findViewById(R.id.snackContainerStub);
+        }
+        return snackContainer != null ? (SnackBar) snackContainer.getTag(R.id.sharedSnackBar) : null;
     }
 
     public static class Builder {
 
         private SnackBar mSnackBar;
         private Context mContext;
-        private final SnackBarButtonParams mActionButtonParams;
-        private final SnackBarButtonParams mCancelButtonParams;
+        private final SnackStyleCache mStyleCache;
+        /**
+         * Immutable, so changing them after {@link #show()} replaces them rather than changing
+         * the messages already queued
+         */
+        private SnackBarButtonParams mActionButtonParams;
+        private SnackBarButtonParams mCancelButtonParams;
         private String mMessage;
         private Parcelable mToken;
         private short mDuration = MED_SNACK;
         private ColorStateList mBackgroundColor;
+        private int mBackgroundColorId;
         private int mHeight;
+        private int mPriority = PRIORITY_NORMAL;
+        private int mTimeToLive;
+        private String mKey;
+        private OnMessageClickListener mClickListener;
+        private OnCancelClickListener mCancelClickListener;
+        private OnVisibilityChangeListener mVisibilityChangeListener;
+
+        /**
+         * The shared floating window, or null if the SnackBar lives in an activity or view. It
+         * is only held while the message is handed over.
+         */
+        private SnackOverlay mOverlay;
+        private boolean mHoldsOverlay;
 
         /**
          * Constructs a new SnackBar
@@ -124,33 +317,22 @@ public class SnackBar {
          */
         public Builder(Activity activity) {
             mContext = activity.getApplicationContext();
-            mSnackBar = new SnackBar(activity);
-            mActionButtonParams = new SnackBarButtonParams(getActionTextColor(Style.DEFAULT));
-            mCancelButtonParams = new SnackBarButtonParams(getActionTextColor(Style.DEFAULT));
+            mSnackBar = SnackBar.obtain(activity);
+            mStyleCache = SnackStyleCache.get(mContext.getResources());
+            mActionButtonParams = createButtonParams();
+            mCancelButtonParams = createButtonParams();
         }
 
-        private View createSnackBarRootView() {
-            WindowManager windowManager = (WindowManager) mContext
-                    .getSystemService(Context.WINDOW_SERVICE);
-
-            LinearLayout rootView = new LinearLayout(mContext);
-
-            final WindowManager.LayoutParams params = new WindowManager.LayoutParams(
-                    WindowManager.LayoutParams.MATCH_PARENT,
-                    WindowManager.LayoutParams.WRAP_CONTENT,
-                    WindowManager.LayoutParams.TYPE_PHONE,
-                    WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE,
-                    PixelFormat.TRANSLUCENT);
-
-            params.gravity = Gravity.BOTTOM;
-            windowManager.addView(rootView, params);
-
-            return rootView;
+        private SnackBarButtonParams createButtonParams() {
+            return new SnackBarButtonParams(null, 0, mStyleCache.getActionTextColor(Style.DEFAULT),
+                    SnackStyleCache.getActionTextColorId(Style.DEFAULT)).intern();
         }
 
         /**
          * Constructs a new SnackBar, in a floating View
-         * This view will be on top of any window
+         * This view will be on top of any window. All floating SnackBars share one window,
+         * which is added by {@link #show()} and removed once its messages are gone, so a
+         * builder that is never shown holds no window.
          *
          * @param context the context used to obtain resources
          */
@@ -163,9 +345,11 @@ public class SnackBar {
                         "constructor or use a constructor with an Activity or View");
             }
             mContext = context;
-            mSnackBar = new SnackBar(context, createSnackBarRootView());
-            mActionButtonParams = new SnackBarButtonParams(getActionTextColor(Style.DEFAULT));
-            mCancelButtonParams = new SnackBarButtonParams(getActionTextColor(Style.DEFAULT));
+            mOverlay = SnackOverlay.get(context);
+            mSnackBar = mOverlay.getSnackBar();
+            mStyleCache = SnackStyleCache.get(mContext.getResources());
+            mActionButtonParams = createButtonParams();
+            mCancelButtonParams = createButtonParams();
         }
 
         /**
@@ -176,9 +360,10 @@ public class SnackBar {
          */
         public Builder(Context context, View v) {
             mContext = context;
-            mSnackBar = new SnackBar(context, v);
-            mActionButtonParams = new SnackBarButtonParams(getActionTextColor(Style.DEFAULT));
-            mCancelButtonParams = new SnackBarButtonParams(getActionTextColor(Style.DEFAULT));
+            mSnackBar = SnackBar.obtain(context, v);
+            mStyleCache = SnackStyleCache.get(mContext.getResources());
+            mActionButtonParams = createButtonParams();
+            mCancelButtonParams = createButtonParams();
         }
 
         /**
@@ -210,7 +395,7 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withActionMessage(String actionMessage) {
-            mActionButtonParams.mTitle = actionMessage;
+            mActionButtonParams = mActionButtonParams.withTitle(actionMessage);
             return this;
         }
 
@@ -221,7 +406,7 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withCancelMessage(String cancelMessage) {
-            mCancelButtonParams.mTitle = cancelMessage;
+            mCancelButtonParams = mCancelButtonParams.withTitle(cancelMessage);
             return this;
         }
 
@@ -233,7 +418,7 @@ public class SnackBar {
          */
         public Builder withActionMessageId(int actionMessageResId) {
             if (actionMessageResId > 0) {
-                mActionButtonParams.mTitle = mContext.getString(actionMessageResId);
+                mActionButtonParams = mActionButtonParams.withTitle(mContext.getString(actionMessageResId));
             }
 
             return this;
@@ -247,7 +432,7 @@ public class SnackBar {
          */
         public Builder withCancelMessageId(int cancelMessageResId) {
             if (cancelMessageResId > 0) {
-                mCancelButtonParams.mTitle = mContext.getString(cancelMessageResId);
+                mCancelButtonParams = mCancelButtonParams.withTitle(mContext.getString(cancelMessageResId));
             }
             return this;
         }
@@ -259,7 +444,7 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withActionIconId(int id) {
-            mActionButtonParams.mIcon = id;
+            mActionButtonParams = mActionButtonParams.withIcon(id);
             return this;
         }
 
@@ -270,7 +455,7 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withCancelIconId(int id) {
-            mCancelButtonParams.mIcon = id;
+            mCancelButtonParams = mCancelButtonParams.withIcon(id);
             return this;
         }
 
@@ -281,7 +466,8 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withActionButtonStyle(Style style) {
-            mActionButtonParams.mTextColor = getActionTextColor(style);
+            mActionButtonParams = mActionButtonParams.withTextColor(mStyleCache.getActionTextColor(style),
+                    SnackStyleCache.getActionTextColorId(style));
             return this;
         }
 
@@ -292,7 +478,8 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withCancelButtonStyle(Style style) {
-            mCancelButtonParams.mTextColor = getActionTextColor(style);
+            mCancelButtonParams = mCancelButtonParams.withTextColor(mStyleCache.getActionTextColor(style),
+                    SnackStyleCache.getActionTextColorId(style));
             return this;
         }
 
@@ -325,7 +512,7 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withTextColorId(int colorId) {
-            mActionButtonParams.mTextColor = mContext.getResources().getColorStateList(colorId);
+            mActionButtonParams = mActionButtonParams.withTextColor(mStyleCache.getColorStateList(colorId), colorId);
             return this;
         }
 
@@ -336,7 +523,7 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withCancelColorId(int colorId) {
-            mCancelButtonParams.mTextColor = mContext.getResources().getColorStateList(colorId);
+            mCancelButtonParams = mCancelButtonParams.withTextColor(mStyleCache.getColorStateList(colorId), colorId);
             return this;
         }
 
@@ -347,7 +534,8 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withBackgroundColorId(int colorId) {
-            mBackgroundColor = mContext.getResources().getColorStateList(colorId);
+            mBackgroundColor = mStyleCache.getColorStateList(colorId);
+            mBackgroundColorId = colorId;
             return this;
         }
 
@@ -362,6 +550,45 @@ public class SnackBar {
             return this;
         }
 
+        /**
+         * Sets the priority of the message. Queued messages with a higher priority are shown
+         * first, messages with the same priority are shown in the order they were added.
+         *
+         * @param priority one of {@link #PRIORITY_LOW}, {@link #PRIORITY_NORMAL},
+         *                 {@link #PRIORITY_HIGH} or any other relative value
+         * @return this builder
+         */
+        public Builder withPriority(int priority) {
+            mPriority = priority;
+            return this;
+        }
+
+        /**
+         * Sets how long the message may wait in the queue. A message that is still queued by
+         * then is dropped without being shown. The time restarts when the queue is restored
+         * from a saved instance state.
+         *
+         * @param timeToLive the time in milliseconds, 0 to wait until shown
+         * @return this builder
+         */
+        public Builder withTimeToLive(int timeToLive) {
+            mTimeToLive = timeToLive;
+            return this;
+        }
+
+        /**
+         * Sets a key for the message, which {@link SnackBar#cancel(String)} can retract it by
+         * while it is queued. A message shown with the key of a queued message takes its place
+         * in the queue.
+         *
+         * @param key the key of the message, or null
+         * @return this builder
+         */
+        public Builder withKey(String key) {
+            mKey = key;
+            return this;
+        }
+
         /**
          * Sets the OnClickListener for the action button
          *
@@ -369,7 +596,7 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withOnClickListener(OnMessageClickListener onClickListener) {
-            mSnackBar.setOnClickListener(onClickListener);
+            mClickListener = onClickListener;
             return this;
         }
 
@@ -380,7 +607,7 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withOnCancelClickListener(OnCancelClickListener cancelClickListener) {
-            mSnackBar.setOnCancelClickListener(cancelClickListener);
+            mCancelClickListener = cancelClickListener;
             return this;
         }
 
@@ -391,47 +618,340 @@ public class SnackBar {
          * @return this builder
          */
         public Builder withVisibilityChangeListener(OnVisibilityChangeListener visibilityChangeListener) {
-            mSnackBar.setOnVisibilityChangeListener(visibilityChangeListener);
+            mVisibilityChangeListener = visibilityChangeListener;
             return this;
         }
 
         /**
-         * Shows the first message in the SnackBar
+         * Shows the first message in the SnackBar. Unlike the constructors, this may be called
+         * from any thread: messages shown off the main thread are queued in a batch on the next
+         * pass of the main looper.
          *
          * @return the SnackBar
          */
         public SnackBar show() {
-            Snack message = new Snack(mMessage,
+            holdOverlay();
+            try {
+                Snack message = createSnack();
+
+                // The SnackBar may be shared with other builders, so the listeners travel with the
+                // message. Nothing of the SnackBar is written off the main thread.
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    mSnackBar.showMessage(message, mVisibilityChangeListener, mClickListener, mCancelClickListener);
+                } else {
+                    mSnackBar.postMessage(message, mVisibilityChangeListener, mClickListener, mCancelClickListener);
+                }
+            } finally {
+                releaseOverlay();
+            }
+            return mSnackBar;
+        }
+
+        private Snack createSnack() {
+            // Messages with the same buttons share one instance of each
+            mActionButtonParams = mActionButtonParams.intern();
+            mCancelButtonParams = mCancelButtonParams.intern();
+            return new Snack(mMessage,
                     mActionButtonParams,
                     mCancelButtonParams,
                     mToken,
                     mDuration,
-                    mBackgroundColor != null ? mBackgroundColor : mContext.getResources().getColorStateList(R.color.sb__snack_bkgnd),
-                    mHeight != 0 ? mHeight : 0);
+                    mBackgroundColor != null ? mBackgroundColor : mStyleCache.getDefaultBackgroundColor(),
+                    mBackgroundColor != null ? mBackgroundColorId : R.color.sb__snack_bkgnd,
+                    mHeight != 0 ? mHeight : 0,
+                    mPriority,
+                    mTimeToLive,
+                    mKey);
+        }
 
-            mSnackBar.showMessage(message);
+        private void holdOverlay() {
+            if (mOverlay != null && !mHoldsOverlay) {
+                mOverlay.acquire();
+                mHoldsOverlay = true;
+            }
+        }
 
-            return mSnackBar;
+        private void releaseOverlay() {
+            if (mOverlay != null && mHoldsOverlay) {
+                mOverlay.release();
+                mHoldsOverlay = false;
+            }
+        }
+    }
+
+    /**
+     * Shows the messages of several builders in one pass. They are queued in order, the
+     * SnackBar is laid out once and each visibility listener is told once, with the final
+     * number of messages. Like {@link Builder#show()}, this may be called from any thread.
+     * Each message keeps the listeners of its own builder, the listeners this SnackBar uses for
+     * restored messages are left as they are.
+     *
+     * @param builders the builders of the messages, in the order they should be queued
+     * @return this SnackBar
+     * @throws IllegalArgumentException if a builder was created for another SnackBar
+     */
+    public SnackBar showAll(final List<Builder> builders) {
+        if (builders.isEmpty()) {
+            return this;
+        }
+        for (int i = 0; i < builders.size(); i++) {
+            if (builders.get(i).mSnackBar != this) {
+                throw new IllegalArgumentException("Builder " + i + " belongs to another SnackBar");
+            }
+        }
+
+        final Snack[] messages = new Snack[builders.size()];
+        for (int i = 0; i < messages.length; i++) {
+            Builder builder = builders.get(i);
+            builder.holdOverlay();
+            messages[i] = builder.createSnack();
+        }
+
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            showMessages(messages, builders);
+        } else if (mSnackContainer != null) {
+            // Submissions are drained as one batch on the main looper
+            for (int i = 0; i < messages.length; i++) {
+                Builder builder = builders.get(i);
+                mSnackContainer.submitSnack(messages[i], builder.mVisibilityChangeListener,
+                        builder.mClickListener, builder.mCancelClickListener);
+            }
+        } else {
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    showMessages(messages, builders);
+                }
+            });
         }
 
-        private ColorStateList getActionTextColor(Style style) {
-            switch (style) {
-                case ALERT:
-                    return mContext.getResources().getColorStateList(R.color.sb__button_text_color_red);
-                case INFO:
-                    return mContext.getResources().getColorStateList(R.color.sb__button_text_color_yellow);
-                case CONFIRM:
-                    return mContext.getResources().getColorStateList(R.color.sb__button_text_color_green);
-                case DEFAULT:
-                    return mContext.getResources().getColorStateList(R.color.sb__default_button_text_color);
-                default:
-                    return mContext.getResources().getColorStateList(R.color.sb__default_button_text_color);
+        for (int i = 0; i < builders.size(); i++) {
+            builders.get(i).releaseOverlay();
+        }
+        return this;
+    }
+
+    private void showMessages(Snack[] messages, List<Builder> builders) {
+        ensureInflated();
+        mSnackContainer.offerSnackView(mParentView);
+        mSnackContainer.beginBatch();
+        try {
+            for (int i = 0; i < messages.length; i++) {
+                Builder builder = builders.get(i);
+                mSnackContainer.showSnack(messages[i], null, builder.mVisibilityChangeListener,
+                        builder.mClickListener, builder.mCancelClickListener);
             }
+        } finally {
+            mSnackContainer.endBatch();
         }
     }
 
-    private void showMessage(Snack message) {
-        mSnackContainer.showSnack(message, mParentView, mVisibilityChangeListener);
+    private void showMessage(Snack message, OnVisibilityChangeListener visibilityChangeListener,
+                             OnMessageClickListener clickListener, OnCancelClickListener cancelClickListener) {
+        // Kept for the messages this SnackBar restores
+        setOnClickListener(clickListener);
+        setOnCancelClickListener(cancelClickListener);
+        setOnVisibilityChangeListener(visibilityChangeListener);
+
+        ensureInflated();
+        mSnackContainer.showSnack(message, mParentView, visibilityChangeListener, clickListener,
+                cancelClickListener);
+    }
+
+    private void postMessage(final Snack message, final OnVisibilityChangeListener visibilityChangeListener,
+                             final OnMessageClickListener clickListener,
+                             final OnCancelClickListener cancelClickListener) {
+        SnackContainer snackContainer = mSnackContainer;
+        if (snackContainer != null) {
+            snackContainer.submitSnack(message, visibilityChangeListener, clickListener, cancelClickListener);
+            return;
+        }
+
+        // Still deferred, the SnackBar can only be inflated on the main thread
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                showMessage(message, visibilityChangeListener, clickListener, cancelClickListener);
+            }
+        });
+    }
+
+    /**
+     * Keeps the pending messages in a journal on disk, so messages that were still waiting when
+     * the process was killed are shown again the next time this SnackBar is created. The
+     * journal is read and written on a background thread, messages found in it are queued
+     * behind the ones already shown unless {@link #onRestoreInstanceState(Bundle)} restored
+     * them first. Must be called on the main thread.
+     *
+     * @param name the name of the journal, which should be unique to the screen
+     */
+    public void enableJournal(String name) {
+        Context context = mSnackContainer != null ? mSnackContainer.getContext() : mDeferredHost.getContext();
+        final SnackJournal journal = SnackJournal.get(context, name);
+        if (journal == mJournal) {
+            return;
+        }
+
+        mJournal = journal;
+        if (mSnackContainer != null) {
+            mSnackContainer.setJournal(journal);
+        }
+        journal.replay(new SnackJournal.OnReplayListener() {
+            @Override
+            public void onReplay(List<SnackJournal.Entry> entries) {
+                if (entries.isEmpty() || mJournal != journal) {
+                    return;
+                }
+                ensureInflated();
+                mSnackContainer.restoreJournal(entries, mParentView, mClickListener, mCancelClickListener);
+            }
+        });
+    }
+
+    /**
+     * Removes the queued message with the given key. The message on screen is not affected.
+     * Must be called on the main thread.
+     *
+     * @param key the key the message was shown with
+     * @return true if a queued message was removed
+     */
+    public boolean cancel(String key) {
+        return mSnackContainer != null && mSnackContainer.cancelSnack(key);
+    }
+
+    /**
+     * Checks whether a message with the given key is waiting to be shown. Must be called on
+     * the main thread.
+     *
+     * @param key the key the message was shown with
+     * @return true if the message is queued
+     */
+    public boolean isPending(String key) {
+        return mSnackContainer != null && mSnackContainer.hasPendingSnack(key);
+    }
+
+    /*
+     * Host-wide settings *
+     */
+
+    /**
+     * Sets what happens to the message on screen when a message with a higher priority is
+     * queued behind it. Must be called on the main thread.
+     *
+     * @param policy the {@link PreemptionPolicy} to use
+     */
+    public void setPreemptionPolicy(PreemptionPolicy policy) {
+        ensureInflated();
+        mSnackContainer.setPreemptionPolicy(policy);
+    }
+
+    /**
+     * Sets whether several messages are shown at once, stacked above each other, so a
+     * backlog drains faster. Tablets stack up to three messages, phones keep showing one
+     * at a time unless {@code sb__max_lanes} is overridden. Needs API 12 and up, must be called
+     * on the main thread.
+     *
+     * @param stacked true to stack messages
+     */
+    public void setStackedMode(boolean stacked) {
+        ensureInflated();
+        mSnackContainer.setStackedMode(stacked);
+    }
+
+    /**
+     * Sets whether messages are drawn by a single view that lays out the message and the
+     * buttons itself, instead of the text views of {@code sb__snack}. Showing a message then
+     * costs one text layout, the inflated layout stays the default. Messages already on screen
+     * keep their view. Must be called on the main thread.
+     *
+     * @param flat true to draw messages in a single view
+     */
+    public void setFlatRenderer(boolean flat) {
+        ensureInflated();
+        mSnackContainer.setFlatRenderer(flat);
+    }
+
+    /**
+     * Sets whether a message identical to one already queued or showing (same message,
+     * action message and token) is folded into it, extending the time it is shown or
+     * counting the repeats, instead of being queued again. Must be called on the main thread.
+     *
+     * @param coalesce true to coalesce duplicate messages
+     */
+    public void setDuplicatesCoalesced(boolean coalesce) {
+        ensureInflated();
+        mSnackContainer.setCoalesceDuplicates(coalesce);
+    }
+
+    /**
+     * Limits the number of messages waiting to be shown. Must be called on the main thread.
+     *
+     * @param maxQueueSize the number of messages that may wait behind the one on screen
+     * @param policy the {@link OverflowPolicy} to apply to messages that arrive while the
+     *               queue is full
+     */
+    public void setMaxQueueSize(int maxQueueSize, OverflowPolicy policy) {
+        ensureInflated();
+        mSnackContainer.setMaxQueueSize(maxQueueSize, policy);
+    }
+
+    /**
+     * Sets the listener told when a message is dropped or collapsed because the queue is full.
+     * Must be called on the main thread.
+     *
+     * @param overflowListener the listener, or null
+     */
+    public void setOnOverflowListener(OnOverflowListener overflowListener) {
+        ensureInflated();
+        mSnackContainer.setOnOverflowListener(overflowListener);
+    }
+
+    /**
+     * Sets the listener told when a message is dropped after its time to live. Must be called
+     * on the main thread.
+     *
+     * @param expiredListener the listener, or null
+     */
+    public void setOnExpiredListener(OnExpiredListener expiredListener) {
+        ensureInflated();
+        mSnackContainer.setOnExpiredListener(expiredListener);
+    }
+
+    /**
+     * Records how many messages are queued, shown and dismissed, and how long they wait
+     * and stay on screen, into the given metrics. Must be called on the main thread.
+     *
+     * @param metrics the metrics to record into, or null to stop recording
+     */
+    public void setMetrics(SnackBarMetrics metrics) {
+        ensureInflated();
+        mSnackContainer.setMetrics(metrics);
+    }
+
+    /**
+     * Sets the listener told how smoothly messages slide in and out, for monitoring
+     * animation performance. Only reported on API 16 and up, must be called on the main thread.
+     *
+     * @param frameStatsListener the listener to report frame stats to, or null
+     */
+    public void setOnFrameStatsListener(OnFrameStatsListener frameStatsListener) {
+        ensureInflated();
+        mSnackContainer.setOnFrameStatsListener(frameStatsListener);
+    }
+
+    /**
+     * Tells the listener every time the last message has been hidden and nothing is queued
+     */
+    void setOnIdleListener(Runnable listener) {
+        ensureInflated();
+        mSnackContainer.setOnIdleListener(listener);
+    }
+
+    /**
+     * @return true if no message is showing, sliding out or waiting to be shown
+     */
+    boolean isIdle() {
+        return mSnackContainer == null || mSnackContainer.isIdle();
     }
 
     /**
@@ -440,6 +960,7 @@ public class SnackBar {
      * @return the height of the SnackBar
      */
     public int getHeight() {
+        ensureInflated();
         mParentView.measure(View.MeasureSpec.makeMeasureSpec(mParentView.getWidth(), View.MeasureSpec.EXACTLY),
                 View.MeasureSpec.makeMeasureSpec(mParentView.getHeight(), View.MeasureSpec.AT_MOST));
         return mParentView.getMeasuredHeight();
@@ -451,41 +972,11 @@ public class SnackBar {
      * @return the parent view
      */
     public View getContainerView() {
+        ensureInflated();
         return mParentView;
     }
 
 
-    private final View.OnClickListener mCance = new View.OnClickListener() {
-        @Override
-        public void onClick(View v) {
-            if (mClickListener != null && mSnackContainer.isShowing()) {
-                mClickListener.onMessageClick(mSnackContainer.peek().mToken);
-            }
-            mSnackContainer.hide();
-        }
-    };
-
-
-    private final View.OnClickListener mCancelListener = new View.OnClickListener() {
-        @Override
-        public void onClick(View v) {
-            if (mCancelClickListener != null && mSnackContainer.isShowing()) {
-                mCancelClickListener.onCancelClick();
-            }
-            mSnackContainer.hide();
-        }
-    };
-
-    private final View.OnClickListener mButtonListener = new View.OnClickListener() {
-        @Override
-        public void onClick(View v) {
-            if (mClickListener != null && mSnackContainer.isShowing()) {
-                mClickListener.onMessageClick(mSnackContainer.peek().mToken);
-            }
-            mSnackContainer.hide();
-        }
-    };
-
     private SnackBar setOnCancelClickListener(OnCancelClickListener listener) {
         mCancelClickListener = listener;
         return this;
@@ -507,7 +998,9 @@ public class SnackBar {
      * @param animate whether or not to animate the messages being hidden
      */
     public void clear(boolean animate) {
-        mSnackContainer.clearSnacks(animate);
+        if (mSnackContainer != null) {
+            mSnackContainer.clearSnacks(animate);
+        }
     }
 
     /**
@@ -523,7 +1016,9 @@ public class SnackBar {
      *
      */
     public void hide() {
-        mSnackContainer.hide();
+        if (mSnackContainer != null) {
+            mSnackContainer.hide();
+        }
         clear();
     }
 
@@ -532,10 +1027,17 @@ public class SnackBar {
      * All snacks will be restored using the view from this Snackbar
      */
     public void onRestoreInstanceState(Bundle state) {
-        mSnackContainer.restoreState(state, mParentView);
+        if (!SnackContainer.hasSavedSnacks(state)) {
+            return;
+        }
+        ensureInflated();
+        mSnackContainer.restoreState(state, mParentView, mClickListener, mCancelClickListener);
     }
 
     public Bundle onSaveInstanceState() {
+        if (mSnackContainer == null) {
+            return new Bundle();
+        }
         return mSnackContainer.saveState();
     }
 
@@ -545,4 +1047,31 @@ public class SnackBar {
         CONFIRM,
         INFO
     }
+
+    public enum PreemptionPolicy {
+        /**
+         * The message on screen keeps its full duration
+         */
+        NONE,
+        /**
+         * The message on screen is hidden right away so the higher priority message can show
+         */
+        INTERRUPT
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * The message that arrives while the queue is full is dropped
+         */
+        DROP_NEWEST,
+        /**
+         * The message that has been waiting longest is dropped to make room
+         */
+        DROP_OLDEST,
+        /**
+         * Messages that arrive while the queue is full are collapsed into a single summary
+         * message such as "12 more messages"
+         */
+        COLLAPSE
+    }
 }
@@ -1,44 +1,95 @@
 package com.github.mrengineer13.snackbar;
 
 import android.content.res.ColorStateList;
-import android.os.Parcel;
-import android.os.Parcelable;
 
-class SnackBarButtonParams implements Parcelable{
-    String mTitle;
-    int mIcon = 0;
-    ColorStateList mTextColor;
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
 
-    SnackBarButtonParams(ColorStateList mTextColor){
+/**
+ * The title, icon and text color of a button. Instances are immutable so queued snacks can
+ * share them: {@link #intern()} returns one shared instance for equal values, and the
+ * {@code with} methods return a modified copy.
+ */
+class SnackBarButtonParams {
 
+    /**
+     * The shared instances, dropped once no snack or builder refers to them
+     */
+    private static final WeakHashMap<SnackBarButtonParams, WeakReference<SnackBarButtonParams>> sInterned =
+            new WeakHashMap<>();
+
+    final String mTitle;
+    final int mIcon;
+    final ColorStateList mTextColor;
+
+    /**
+     * The resource the text color was resolved from, or 0 when it is not known
+     */
+    final int mTextColorId;
+
+    private final int mHash;
+
+    SnackBarButtonParams(String title, int icon, ColorStateList textColor, int textColorId){
+        mTitle = title;
+        mIcon = icon;
+        mTextColor = textColor;
+        mTextColorId = textColorId;
+
+        int result = title != null ? title.hashCode() : 0;
+        result = 31 * result + icon;
+        result = 31 * result + (textColor != null ? textColor.hashCode() : 0);
+        result = 31 * result + textColorId;
+        mHash = result;
     }
 
-    SnackBarButtonParams(Parcel p){
-        mTitle = p.readString();
-        mIcon = p.readInt();
-        mTextColor = p.readParcelable(p.getClass().getClassLoader());
+    /**
+     * Returns the shared instance equal to this one, registering this one if there is none
+     *
+     * @return the shared instance
+     */
+    SnackBarButtonParams intern() {
+        synchronized (sInterned) {
+            WeakReference<SnackBarButtonParams> ref = sInterned.get(this);
+            SnackBarButtonParams interned = ref != null ? ref.get() : null;
+            if (interned == null) {
+                interned = this;
+                sInterned.put(this, new WeakReference<>(this));
+            }
+            return interned;
+        }
     }
 
-    @Override
-    public int describeContents() {
-        return 0;
+    SnackBarButtonParams withTitle(String title) {
+        return new SnackBarButtonParams(title, mIcon, mTextColor, mTextColorId);
     }
 
-    @Override
-    public void writeToParcel(Parcel out, int flags) {
-        out.writeString(mTitle);
-        out.writeInt(mIcon);
-        out.writeParcelable(mTextColor, 0);
+    SnackBarButtonParams withIcon(int icon) {
+        return new SnackBarButtonParams(mTitle, icon, mTextColor, mTextColorId);
     }
 
-    // creates snack array
-    public static final Parcelable.Creator<SnackBarButtonParams> CREATOR = new Parcelable.Creator<SnackBarButtonParams>() {
-        public SnackBarButtonParams createFromParcel(Parcel in) {
-            return new SnackBarButtonParams(in);
-        }
+    SnackBarButtonParams withTextColor(ColorStateList textColor, int textColorId) {
+        return new SnackBarButtonParams(mTitle, mIcon, textColor, textColorId);
+    }
 
-        public SnackBarButtonParams[] newArray(int size) {
-            return new SnackBarButtonParams[size];
-        }
-    };
+    /**
+     * Colors are compared by instance, resolving the same resource through
+     * {@link SnackStyleCache} returns the same instance
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SnackBarButtonParams)) return false;
+
+        SnackBarButtonParams other = (SnackBarButtonParams) o;
+        return mHash == other.mHash
+                && mIcon == other.mIcon
+                && mTextColorId == other.mTextColorId
+                && mTextColor == other.mTextColor
+                && (mTitle != null ? mTitle.equals(other.mTitle) : other.mTitle == null);
+    }
+
+    @Override
+    public int hashCode() {
+        return mHash;
+    }
 }
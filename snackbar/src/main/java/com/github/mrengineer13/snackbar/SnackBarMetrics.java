@@ -0,0 +1,255 @@
+package com.github.mrengineer13.snackbar;
+
+/**
+ * Counts what happens to the messages of a SnackBar: how many were queued, shown and how
+ * they went away, how deep the queue got, how long messages waited and how long they stayed on
+ * screen. Pass an instance to {@link SnackBar#setMetrics(SnackBarMetrics)} and export
+ * it with {@link #report(Reporter)}.
+ * <p>
+ * The SnackBar records into the metrics on the main thread without allocating, so they should
+ * also be read and reset on the main thread.
+ */
+public class SnackBarMetrics {
+
+    /**
+     * Exports the metrics, for example to an analytics or monitoring backend
+     */
+    public interface Reporter {
+        void report(SnackBarMetrics metrics);
+    }
+
+    static final int DISMISSED_BY_TIMEOUT = 0;
+    static final int DISMISSED_BY_SWIPE = 1;
+    static final int DISMISSED_BY_BUTTON = 2;
+    static final int DISMISSED_BY_APP = 3;
+
+    /**
+     * Upper bounds in milliseconds of the buckets of both histograms, the last bucket holds
+     * everything longer
+     */
+    private static final long[] BUCKET_BOUNDS = {
+            50, 100, 250, 500, 1000, 2000, 3500, 5000, 10000, 30000, 60000
+    };
+
+    private long mEnqueued;
+    private long mShown;
+    private long mDismissedByTimeout;
+    private long mDismissedBySwipe;
+    private long mDismissedByButton;
+    private long mDismissedByApp;
+    private long mCleared;
+    private long mExpired;
+    private int mQueueHighWaterMark;
+
+    private final Histogram mQueueWaitTime = new Histogram();
+    private final Histogram mOnScreenTime = new Histogram();
+
+    /**
+     * Passes the metrics to the reporter
+     *
+     * @param reporter the reporter to export the metrics with
+     */
+    public void report(Reporter reporter) {
+        reporter.report(this);
+    }
+
+    /**
+     * Starts all counters and histograms over, for reporters that export deltas
+     */
+    public void reset() {
+        mEnqueued = 0;
+        mShown = 0;
+        mDismissedByTimeout = 0;
+        mDismissedBySwipe = 0;
+        mDismissedByButton = 0;
+        mDismissedByApp = 0;
+        mCleared = 0;
+        mExpired = 0;
+        mQueueHighWaterMark = 0;
+        mQueueWaitTime.reset();
+        mOnScreenTime.reset();
+    }
+
+    /**
+     * @return the number of messages passed to the SnackBar, including those later dropped or
+     * folded into a duplicate
+     */
+    public long getEnqueued() {
+        return mEnqueued;
+    }
+
+    public long getShown() {
+        return mShown;
+    }
+
+    public long getDismissedByTimeout() {
+        return mDismissedByTimeout;
+    }
+
+    public long getDismissedBySwipe() {
+        return mDismissedBySwipe;
+    }
+
+    /**
+     * @return the number of messages dismissed by their action or cancel button
+     */
+    public long getDismissedByButton() {
+        return mDismissedByButton;
+    }
+
+    /**
+     * @return the number of messages hidden by the app or by a message with a higher priority
+     */
+    public long getDismissedByApp() {
+        return mDismissedByApp;
+    }
+
+    /**
+     * @return the number of messages, shown or queued, removed by clearing the SnackBar
+     */
+    public long getCleared() {
+        return mCleared;
+    }
+
+    /**
+     * @return the number of messages dropped unseen after waiting longer than their time to live
+     */
+    public long getExpired() {
+        return mExpired;
+    }
+
+    /**
+     * @return the largest number of messages that were queued or showing at the same time
+     */
+    public int getQueueHighWaterMark() {
+        return mQueueHighWaterMark;
+    }
+
+    /**
+     * @return the time messages waited in the queue before they were shown
+     */
+    public Histogram getQueueWaitTime() {
+        return mQueueWaitTime;
+    }
+
+    /**
+     * @return the time messages stayed on screen
+     */
+    public Histogram getOnScreenTime() {
+        return mOnScreenTime;
+    }
+
+    /*
+     * Recording *
+     */
+
+    void onEnqueued(int queueDepth) {
+        mEnqueued++;
+        if (queueDepth > mQueueHighWaterMark) {
+            mQueueHighWaterMark = queueDepth;
+        }
+    }
+
+    void onShown(long waitMillis) {
+        mShown++;
+        mQueueWaitTime.record(waitMillis);
+    }
+
+    void onDismissed(int reason, long onScreenMillis) {
+        switch (reason) {
+            case DISMISSED_BY_SWIPE:
+                mDismissedBySwipe++;
+                break;
+            case DISMISSED_BY_BUTTON:
+                mDismissedByButton++;
+                break;
+            case DISMISSED_BY_APP:
+                mDismissedByApp++;
+                break;
+            case DISMISSED_BY_TIMEOUT:
+            default:
+                mDismissedByTimeout++;
+                break;
+        }
+        mOnScreenTime.record(onScreenMillis);
+    }
+
+    void onCleared(int count) {
+        mCleared += count;
+    }
+
+    void onExpired() {
+        mExpired++;
+    }
+
+    /**
+     * Counts durations in fixed buckets, from under 50 milliseconds to over a minute
+     */
+    public static final class Histogram {
+
+        private final long[] mCounts = new long[BUCKET_BOUNDS.length + 1];
+
+        private long mTotalCount;
+
+        private long mTotalMillis;
+
+        private long mMaxMillis;
+
+        Histogram() {
+        }
+
+        public int getBucketCount() {
+            return mCounts.length;
+        }
+
+        /**
+         * @param bucket a bucket between 0 and {@link #getBucketCount()}
+         * @return the exclusive upper bound of the bucket in milliseconds, or
+         * {@link Long#MAX_VALUE} for the last one
+         */
+        public long getBucketUpperBound(int bucket) {
+            return bucket < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[bucket] : Long.MAX_VALUE;
+        }
+
+        public long getCount(int bucket) {
+            return mCounts[bucket];
+        }
+
+        public long getTotalCount() {
+            return mTotalCount;
+        }
+
+        public long getMaxMillis() {
+            return mMaxMillis;
+        }
+
+        public long getMeanMillis() {
+            return mTotalCount > 0 ? mTotalMillis / mTotalCount : 0;
+        }
+
+        void record(long millis) {
+            if (millis < 0) {
+                millis = 0;
+            }
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && millis >= BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            mCounts[bucket]++;
+            mTotalCount++;
+            mTotalMillis += millis;
+            if (millis > mMaxMillis) {
+                mMaxMillis = millis;
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < mCounts.length; i++) {
+                mCounts[i] = 0;
+            }
+            mTotalCount = 0;
+            mTotalMillis = 0;
+            mMaxMillis = 0;
+        }
+    }
+}
@@ -1,38 +1,132 @@
 package com.github.mrengineer13.snackbar;
 
 import android.content.Context;
-import android.content.res.Resources;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.os.Parcelable;
+import android.text.TextPaint;
 import android.util.AttributeSet;
-import android.util.TypedValue;
-import android.view.MotionEvent;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.animation.AlphaAnimation;
-import android.view.animation.Animation;
-import android.view.animation.AnimationSet;
-import android.view.animation.TranslateAnimation;
 import android.widget.FrameLayout;
-import android.widget.TextView;
 
+import com.github.mrengineer13.snackbar.SnackBar.OnCancelClickListener;
+import com.github.mrengineer13.snackbar.SnackBar.OnExpiredListener;
+import com.github.mrengineer13.snackbar.SnackBar.OnFrameStatsListener;
+import com.github.mrengineer13.snackbar.SnackBar.OnMessageClickListener;
+import com.github.mrengineer13.snackbar.SnackBar.OnOverflowListener;
 import com.github.mrengineer13.snackbar.SnackBar.OnVisibilityChangeListener;
+import com.github.mrengineer13.snackbar.SnackBar.OverflowPolicy;
+import com.github.mrengineer13.snackbar.SnackBar.PreemptionPolicy;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class SnackContainer extends FrameLayout {
 
-    private static final int ANIMATION_DURATION = 300;
+    private static final String SAVED_QUEUE = "SAVED_QUEUE";
 
-    private static final String SAVED_MSGS = "SAVED_MSGS";
+    private static final int MAX_RECYCLED_VIEWS = 3;
 
-    private Queue<SnackHolder> mSnacks = new LinkedList<>();
+    private final SnackQueue<SnackHolder> mSnacks = new SnackQueue<>();
 
-    private AnimationSet mOutAnimationSet;
-    private AnimationSet mInAnimationSet;
+    private SnackJournal mJournal;
 
-    private float mPreviousY;
+    private SnackBarMetrics mMetrics;
+
+    /**
+     * Whether the queue was restored from a saved instance state, which makes a replay of the
+     * journal redundant
+     */
+    private boolean mRestoredFromState;
+
+    /**
+     * The snacks on screen, bottom lane first, kept out of {@link #mSnacks} so a higher priority
+     * arrival cannot displace them from the head of the queue
+     */
+    private final ArrayList<SnackHolder> mShowing = new ArrayList<>();
+
+    /**
+     * The number of snacks shown at once, one unless stacked mode is on
+     */
+    private int mMaxLanes = 1;
+
+    /**
+     * Whether snacks are drawn by a {@link SnackView} instead of inflated from {@code sb__snack}
+     */
+    private boolean mFlatRenderer;
+
+    private PreemptionPolicy mPreemptionPolicy = PreemptionPolicy.NONE;
+
+    private boolean mCoalesceDuplicates;
+
+    /**
+     * Indexes the queued and showing snacks by {@link DuplicateKey} while duplicates are coalesced
+     */
+    private final HashMap<DuplicateKey, SnackHolder> mDuplicateIndex = new HashMap<>();
+
+    private int mMaxQueueSize = Integer.MAX_VALUE;
+
+    private OverflowPolicy mOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    private OnOverflowListener mOverflowListener;
+
+    /**
+     * Pending summary standing in for the snacks collapsed by {@link OverflowPolicy#COLLAPSE}
+     */
+    private SnackHolder mOverflowSummary;
+
+    private int mOverflowCount;
+
+    /**
+     * Indexes the queued snacks that have a key, snacks on screen are not in it
+     */
+    private final HashMap<String, SnackHolder> mKeyIndex = new HashMap<>();
+
+    private OnExpiredListener mExpiredListener;
+
+    /**
+     * Snacks submitted from any thread, waiting for the next drain on the main looper
+     */
+    private final ConcurrentLinkedQueue<SnackHolder> mSubmissions = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final SnackTimer mTimer = SnackTimer.get();
+
+    private final ArrayList<SnackViewHolder> mRecycledViews = new ArrayList<>(MAX_RECYCLED_VIEWS);
+
+    private SnackAnimator mAnimator;
+
+    private SwipeDismissHandler mSwipeHandler;
+
+    private Runnable mIdleListener;
+
+    /**
+     * Whether the window is hidden, which freezes the hide timers and the queue
+     */
+    private boolean mSuspended;
+
+    /**
+     * Snacks shown while a batch is queued, whose listeners are told once the batch is done,
+     * or null outside a batch
+     */
+    private ArrayList<SnackHolder> mBatchShown;
+
+    /**
+     * The paint and text width of the last message laid out, to lay out queued messages ahead
+     */
+    private TextPaint mMessagePaint;
+    private int mMessageWidth;
 
     public SnackContainer(Context context) {
         super(context);
@@ -54,57 +148,55 @@ class SnackContainer extends FrameLayout {
     }
 
     private void init() {
-        mInAnimationSet = new AnimationSet(false);
-
-        TranslateAnimation mSlideInAnimation = new TranslateAnimation(
-                TranslateAnimation.RELATIVE_TO_PARENT, 0.0f,
-                TranslateAnimation.RELATIVE_TO_PARENT, 0.0f,
-                TranslateAnimation.RELATIVE_TO_SELF, 1.0f,
-                TranslateAnimation.RELATIVE_TO_SELF, 0.0f);
-
-        AlphaAnimation mFadeInAnimation = new AlphaAnimation(0.0f, 1.0f);
-
-        mInAnimationSet.addAnimation(mSlideInAnimation);
-        mInAnimationSet.addAnimation(mFadeInAnimation);
-
-        mOutAnimationSet = new AnimationSet(false);
-
-        TranslateAnimation mSlideOutAnimation = new TranslateAnimation(
-                TranslateAnimation.RELATIVE_TO_PARENT, 0.0f,
-                TranslateAnimation.RELATIVE_TO_PARENT, 0.0f,
-                TranslateAnimation.RELATIVE_TO_SELF, 0.0f,
-                TranslateAnimation.RELATIVE_TO_SELF, 1.0f);
-
-        AlphaAnimation mFadeOutAnimation = new AlphaAnimation(1.0f, 0.0f);
-
-        mOutAnimationSet.addAnimation(mSlideOutAnimation);
-        mOutAnimationSet.addAnimation(mFadeOutAnimation);
-
-        mOutAnimationSet.setDuration(ANIMATION_DURATION);
-        mOutAnimationSet.setAnimationListener(new Animation.AnimationListener() {
-            @Override
-            public void onAnimationStart(Animation animation) {
-
-            }
-
+        mAnimator = SnackAnimator.create(this, new SnackAnimator.OnHiddenListener() {
             @Override
-            public void onAnimationEnd(Animation animation) {
-                removeAllViews();
-
-                if (!mSnacks.isEmpty()) {
-                    sendOnHide(mSnacks.poll());
+            public void onHidden(View snackView) {
+                SnackViewHolder views = SnackViewHolder.of(snackView);
+                SnackHolder hidden = views.snackHolder;
+                recycleSnackView(views);
+
+                if (hidden != null && mShowing.remove(hidden)) {
+                    removeFromDuplicateIndex(hidden);
+                    removeFromJournal(hidden);
+                    recordDismissed(hidden, hidden.hideReason);
+                    sendOnHide(hidden);
                 }
 
-                if (!isEmpty()) {
-                    showSnack(mSnacks.peek());
-                } else {
-                    setVisibility(View.GONE);
+                showPendingSnacks();
+                if (mShowing.isEmpty() && getChildCount() == 0) {
+                    onIdle();
                 }
             }
+        });
 
+        mSwipeHandler = new SwipeDismissHandler(getContext(), new SwipeDismissHandler.OnDismissListener() {
             @Override
-            public void onAnimationRepeat(Animation animation) {
+            public void onDismiss(View snackView) {
+                SnackHolder holder = SnackViewHolder.of(snackView).snackHolder;
+                if (holder == null || holder.hiding) {
+                    return;
+                }
+                if (mMaxLanes > 1) {
+                    // Stacked snacks are swiped away one by one
+                    hideSnack(holder, SnackBarMetrics.DISMISSED_BY_SWIPE);
+                    return;
+                }
 
+                recordDismissed(holder, SnackBarMetrics.DISMISSED_BY_SWIPE);
+                if (mMetrics != null) {
+                    mMetrics.onCleared(mSnacks.size());
+                }
+                sendOnHide(holder);
+                holder.hiding = true;
+                mAnimator.animateOut(snackView);
+
+                mShowing.remove(holder);
+                cancelHideTask(holder);
+                clearExpiries();
+                mSnacks.clear();
+                mDuplicateIndex.clear();
+                mKeyIndex.clear();
+                clearJournal();
             }
         });
     }
@@ -112,10 +204,64 @@ class SnackContainer extends FrameLayout {
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        mInAnimationSet.cancel();
-        mOutAnimationSet.cancel();
-        removeCallbacks(mHideRunnable);
+        setTag(R.id.sharedSnackBar, null);
+        cancelHideTasks();
+        mSuspended = false;
+        mMainHandler.removeCallbacks(mDrainRunnable);
+        mSubmissions.clear();
+        mDrainScheduled.set(false);
+        clearExpiries();
         mSnacks.clear();
+        mDuplicateIndex.clear();
+        mKeyIndex.clear();
+        mShowing.clear();
+        mOverflowSummary = null;
+        mOverflowCount = 0;
+        mAnimator.cancel();
+        mSwipeHandler.release();
+        recycleSnackViews();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility == View.VISIBLE) {
+            resume();
+        } else {
+            suspend();
+        }
+    }
+
+    /**
+     * Freezes the snacks while nobody can see them: hide timers stop with the time they have
+     * left, running transitions jump to their end and no queued snack is shown
+     */
+    private void suspend() {
+        if (mSuspended) {
+            return;
+        }
+        mSuspended = true;
+        for (int i = 0; i < mShowing.size(); i++) {
+            SnackHolder holder = mShowing.get(i);
+            if (holder.hideTask != null) {
+                mTimer.pause(holder.hideTask);
+            }
+        }
+        mAnimator.finish();
+    }
+
+    private void resume() {
+        if (!mSuspended) {
+            return;
+        }
+        mSuspended = false;
+        for (int i = 0; i < mShowing.size(); i++) {
+            SnackHolder holder = mShowing.get(i);
+            if (holder.hideTask != null) {
+                mTimer.resume(holder.hideTask);
+            }
+        }
+        showPendingSnacks();
     }
 
     /*
@@ -123,21 +269,201 @@ class SnackContainer extends FrameLayout {
      */
 
     public boolean isEmpty() {
-        return mSnacks.isEmpty();
+        return mShowing.isEmpty() && mSnacks.isEmpty();
+    }
+
+    /**
+     * @return true if no snack is showing, sliding out, queued or submitted
+     */
+    boolean isIdle() {
+        return isEmpty() && getChildCount() == 0 && mSubmissions.isEmpty();
     }
 
     public Snack peek() {
-        return mSnacks.peek().snack;
+        return !mShowing.isEmpty() ? mShowing.get(0).snack : mSnacks.peek().snack;
     }
 
     public Snack pollSnack() {
-        return mSnacks.poll().snack;
+        SnackHolder holder;
+        if (!mShowing.isEmpty()) {
+            holder = mShowing.remove(0);
+        } else {
+            holder = mSnacks.poll();
+            removeFromKeyIndex(holder);
+            cancelExpiryTask(holder);
+        }
+        removeFromJournal(holder);
+        return holder.snack;
     }
 
     public void clearSnacks(boolean animate) {
+        if (mMetrics != null) {
+            mMetrics.onCleared(getStackSize());
+        }
+        clearExpiries();
         mSnacks.clear();
-        removeCallbacks(mHideRunnable);
-        if (animate) mHideRunnable.run();
+        mDuplicateIndex.clear();
+        mKeyIndex.clear();
+        clearJournal();
+        mOverflowSummary = null;
+        mOverflowCount = 0;
+        cancelHideTasks();
+        if (animate) {
+            // The cleared snacks slide out without being reported as hidden
+            for (int i = 0; i < mShowing.size(); i++) {
+                SnackHolder holder = mShowing.get(i);
+                if (!holder.hiding && holder.views != null) {
+                    holder.hiding = true;
+                    mAnimator.animateOut(holder.views.snackView);
+                }
+            }
+            mShowing.clear();
+            if (mSuspended) {
+                mAnimator.finish();
+            }
+        } else {
+            mShowing.clear();
+            mAnimator.cancel();
+            recycleSnackViews();
+            onIdle();
+        }
+    }
+
+    /**
+     * Runs the listener every time the container goes away because it has nothing left to show
+     *
+     * @param listener the listener to run, or null
+     */
+    void setOnIdleListener(Runnable listener) {
+        mIdleListener = listener;
+    }
+
+    private void onIdle() {
+        setVisibility(View.GONE);
+        if (mIdleListener != null) {
+            mIdleListener.run();
+        }
+    }
+
+    /**
+     * Removes the queued snack with the given key, leaving the snacks on screen alone
+     *
+     * @param key the key of the snack
+     * @return true if a queued snack was removed
+     */
+    public boolean cancelSnack(String key) {
+        SnackHolder holder = mKeyIndex.remove(key);
+        if (holder == null || !mSnacks.remove(holder)) {
+            return false;
+        }
+        cancelExpiryTask(holder);
+        removeFromDuplicateIndex(holder);
+        removeFromJournal(holder);
+        if (mMetrics != null) {
+            mMetrics.onCleared(1);
+        }
+        return true;
+    }
+
+    public boolean hasPendingSnack(String key) {
+        return mKeyIndex.containsKey(key);
+    }
+
+    /**
+     * Sets what happens to the snack on screen when a snack with a higher priority is queued
+     *
+     * @param policy the {@link PreemptionPolicy} to apply
+     */
+    public void setPreemptionPolicy(PreemptionPolicy policy) {
+        mPreemptionPolicy = policy != null ? policy : PreemptionPolicy.NONE;
+    }
+
+    /**
+     * Sets whether a snack with the same message, action title and token as one already queued
+     * or showing is folded into it instead of being queued again
+     *
+     * @param coalesce true to coalesce duplicates
+     */
+    public void setCoalesceDuplicates(boolean coalesce) {
+        mCoalesceDuplicates = coalesce;
+        if (!coalesce) {
+            mDuplicateIndex.clear();
+        }
+    }
+
+    /**
+     * Records queue and lifecycle metrics into the given instance
+     *
+     * @param metrics the metrics to update, or null to stop recording
+     */
+    public void setMetrics(SnackBarMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Reports the frames drawn while snacks slide in and out, on API 16 and up
+     *
+     * @param listener the listener to report to, or null to stop monitoring
+     */
+    public void setOnFrameStatsListener(OnFrameStatsListener listener) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        mAnimator.setFrameMonitor(listener != null ? new SnackFrameMonitor(getContext(), listener) : null);
+    }
+
+    /**
+     * Sets whether several snacks are shown at once, stacked above each other. The number of
+     * lanes comes from {@code sb__max_lanes}, stacking needs API 12 and up.
+     *
+     * @param stacked true to stack snacks, false to show one at a time
+     */
+    public void setStackedMode(boolean stacked) {
+        mMaxLanes = stacked && SnackAnimator.animatesViews()
+                ? Math.max(1, getResources().getInteger(R.integer.sb__max_lanes)) : 1;
+        showPendingSnacks();
+    }
+
+    /**
+     * Sets whether snacks are drawn by a single {@link SnackView} instead of the views of
+     * {@code sb__snack}, which saves measuring and laying out three text views for every snack
+     *
+     * @param flat true to draw snacks in a single view
+     */
+    public void setFlatRenderer(boolean flat) {
+        if (mFlatRenderer == flat) {
+            return;
+        }
+        mFlatRenderer = flat;
+        mMessagePaint = null;
+        mMessageWidth = 0;
+        for (int i = mRecycledViews.size() - 1; i >= 0; i--) {
+            if (mRecycledViews.get(i).isFlat() != flat) {
+                mRecycledViews.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Limits the number of snacks waiting behind the one on screen
+     *
+     * @param maxQueueSize the number of pending snacks to keep, at least one
+     * @param policy what to do with a snack that arrives while the queue is full
+     */
+    public void setMaxQueueSize(int maxQueueSize, OverflowPolicy policy) {
+        if (maxQueueSize < 1) {
+            throw new IllegalArgumentException("The queue must hold at least one message");
+        }
+        mMaxQueueSize = maxQueueSize;
+        mOverflowPolicy = policy != null ? policy : OverflowPolicy.DROP_NEWEST;
+    }
+
+    public void setOnOverflowListener(OnOverflowListener listener) {
+        mOverflowListener = listener;
+    }
+
+    public void setOnExpiredListener(OnExpiredListener listener) {
+        mExpiredListener = listener;
     }
 
     /*
@@ -145,43 +471,250 @@ class SnackContainer extends FrameLayout {
      */
 
     public boolean isShowing() {
-        return !mSnacks.isEmpty();
+        return !mShowing.isEmpty();
     }
 
     public void hide() {
-        removeCallbacks(mHideRunnable);
-        mHideRunnable.run();
+        hide(SnackBarMetrics.DISMISSED_BY_APP);
     }
 
-    public void showSnack(Snack snack, View snackView, OnVisibilityChangeListener listener) {
-        showSnack(snack, snackView, listener, false);
+    private void hide(int reason) {
+        for (int i = mShowing.size() - 1; i >= 0; i--) {
+            SnackHolder holder = mShowing.get(i);
+            if (!holder.hiding) {
+                hideSnack(holder, reason);
+            }
+        }
     }
 
+    private void hideSnack(SnackHolder holder, int reason) {
+        holder.hiding = true;
+        holder.hideReason = reason;
+        cancelHideTask(holder);
+        if (holder.views != null) {
+            mAnimator.animateOut(holder.views.snackView);
+            if (mSuspended) {
+                mAnimator.finish();
+            }
+        }
+    }
 
-    public void showSnack(Snack snack, View snackView, OnVisibilityChangeListener listener, boolean immediately) {
-        if (snackView.getParent() != null && snackView.getParent() != this) {
-            ((ViewGroup) snackView.getParent()).removeView(snackView);
+    /**
+     * Starts the hide timer of a snack on screen over, keeping it frozen while suspended
+     */
+    private void startHideTask(SnackHolder holder) {
+        mTimer.schedule(holder.hideTask, holder.snack.mDuration);
+        if (mSuspended) {
+            mTimer.pause(holder.hideTask);
+        }
+    }
+
+    private void cancelHideTask(SnackHolder holder) {
+        if (holder.hideTask != null) {
+            mTimer.cancel(holder.hideTask);
+        }
+    }
+
+    private void cancelHideTasks() {
+        for (int i = 0; i < mShowing.size(); i++) {
+            cancelHideTask(mShowing.get(i));
+        }
+    }
+
+    public void showSnack(Snack snack, View snackView, OnVisibilityChangeListener listener,
+                          OnMessageClickListener clickListener, OnCancelClickListener cancelClickListener) {
+        showSnack(snack, snackView, listener, clickListener, cancelClickListener, false);
+    }
+
+    public void showSnack(Snack snack, View snackView, OnVisibilityChangeListener listener,
+                          OnMessageClickListener clickListener, OnCancelClickListener cancelClickListener,
+                          boolean immediately) {
+        offerSnackView(snackView);
+        enqueue(new SnackHolder(snack, listener, clickListener, cancelClickListener), immediately);
+    }
+
+    /**
+     * Queues a snack from any thread. Submissions are collected in a lock-free queue and added
+     * in a single pass on the main looper, so a burst of submissions costs one handler message.
+     */
+    public void submitSnack(Snack snack, OnVisibilityChangeListener listener,
+                            OnMessageClickListener clickListener, OnCancelClickListener cancelClickListener) {
+        mSubmissions.offer(new SnackHolder(snack, listener, clickListener, cancelClickListener));
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mMainHandler.post(mDrainRunnable);
+        }
+    }
+
+    /**
+     * Holds back the {@link OnVisibilityChangeListener#onShow(int)} calls of the snacks queued
+     * until {@link #endBatch()}
+     */
+    void beginBatch() {
+        if (mBatchShown == null) {
+            mBatchShown = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Tells each listener of the snacks shown during the batch once, with the final stack size
+     */
+    void endBatch() {
+        ArrayList<SnackHolder> shown = mBatchShown;
+        mBatchShown = null;
+        if (shown == null) {
+            return;
+        }
+
+        final int stackSize = getStackSize();
+        for (int i = 0; i < shown.size(); i++) {
+            OnVisibilityChangeListener listener = shown.get(i).visListener;
+            if (listener != null && !hasListener(shown, i, listener)) {
+                listener.onShow(stackSize);
+            }
+        }
+    }
+
+    /**
+     * @return true if one of the first {@code count} snacks has the given listener
+     */
+    private static boolean hasListener(List<SnackHolder> holders, int count, OnVisibilityChangeListener listener) {
+        for (int i = 0; i < count; i++) {
+            if (holders.get(i).visListener == listener) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void enqueue(SnackHolder holder, boolean immediately) {
+        holder.enqueuedAt = SystemClock.uptimeMillis();
+        addToQueue(holder, immediately);
+        if (mMetrics != null) {
+            mMetrics.onEnqueued(getStackSize());
+        }
+    }
+
+    private void addToQueue(SnackHolder holder, boolean immediately) {
+        if (mCoalesceDuplicates) {
+            DuplicateKey duplicateKey = new DuplicateKey(holder.snack);
+            if (coalesce(duplicateKey)) {
+                removeFromJournal(holder);
+                return;
+            }
+            holder.duplicateKey = duplicateKey;
+        }
+
+        if (holder.snack.mKey != null && replaceSnack(holder)) {
+            return;
+        }
+
+        if (mShowing.size() < mMaxLanes && !mSuspended) {
+            addToDuplicateIndex(holder);
+            addToJournal(holder);
+            mShowing.add(holder);
+            showSnack(holder, immediately);
+            return;
+        }
+
+        if (mSnacks.size() >= mMaxQueueSize && !handleOverflow(holder)) {
+            removeFromJournal(holder);
+            return;
         }
 
-        SnackHolder holder = new SnackHolder(snack, snackView, listener);
+        addToDuplicateIndex(holder);
+        addToJournal(holder);
         mSnacks.offer(holder);
-        if (mSnacks.size() == 1) showSnack(holder, immediately);
+        onQueued(holder);
+        if (mPreemptionPolicy == PreemptionPolicy.INTERRUPT) {
+            SnackHolder lowest = getPreemptableSnack();
+            if (lowest != null && holder.priority > lowest.priority) {
+                hideSnack(lowest, SnackBarMetrics.DISMISSED_BY_APP);
+            }
+        }
+    }
+
+    /**
+     * Indexes a snack that just joined the queue and prepares it for being shown
+     */
+    private void onQueued(SnackHolder holder) {
+        if (holder.snack.mKey != null) {
+            mKeyIndex.put(holder.snack.mKey, holder);
+        }
+        prefetchLayout(holder);
+        if (holder.snack.mTimeToLive > 0) {
+            holder.expiresAt = holder.enqueuedAt + holder.snack.mTimeToLive;
+            if (holder.expiryTask == null) {
+                holder.expiryTask = new ExpiryTask(holder);
+            }
+            mTimer.schedule(holder.expiryTask, holder.expiresAt - SystemClock.uptimeMillis());
+        }
+    }
+
+    /**
+     * Puts a keyed snack in the place of the queued snack with the same key
+     *
+     * @return true if a queued snack was replaced
+     */
+    private boolean replaceSnack(SnackHolder holder) {
+        SnackHolder replaced = mKeyIndex.get(holder.snack.mKey);
+        if (replaced == null || !mSnacks.replace(replaced, holder)) {
+            return false;
+        }
+        cancelExpiryTask(replaced);
+        removeFromDuplicateIndex(replaced);
+        removeFromJournal(replaced);
+        addToDuplicateIndex(holder);
+        addToJournal(holder);
+        onQueued(holder);
+        return true;
     }
 
-    private void showSnack(final SnackHolder holder) {
-        showSnack(holder, false);
+    private void removeFromKeyIndex(SnackHolder holder) {
+        if (holder.snack.mKey != null && mKeyIndex.get(holder.snack.mKey) == holder) {
+            mKeyIndex.remove(holder.snack.mKey);
+        }
     }
 
-    private void setButtonParams(SnackBarButtonParams params, TextView button){
-        if (params.mTitle != null || params.mIcon > 0){
-            button.setVisibility(View.VISIBLE);
-            button.setText(params.mTitle);
-            button.setCompoundDrawablesWithIntrinsicBounds(params.mIcon, 0, 0, 0);
-            if (params.mTextColor != null) {
-                button.setTextColor(params.mTextColor);
+    /**
+     * Returns the lowest priority snack on screen, or null if one is already leaving and will
+     * free its lane anyway
+     */
+    private SnackHolder getPreemptableSnack() {
+        SnackHolder lowest = null;
+        for (int i = 0; i < mShowing.size(); i++) {
+            SnackHolder holder = mShowing.get(i);
+            if (holder.hiding) {
+                return null;
             }
-        } else {
-            button.setVisibility(View.GONE);
+            if (lowest == null || holder.priority < lowest.priority) {
+                lowest = holder;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Shows queued snacks until every lane is taken
+     */
+    private void showPendingSnacks() {
+        final long now = SystemClock.uptimeMillis();
+        while (mShowing.size() < mMaxLanes && !mSnacks.isEmpty() && !mSuspended) {
+            SnackHolder next = mSnacks.poll();
+            removeFromKeyIndex(next);
+            cancelExpiryTask(next);
+            if (next.expiresAt > 0 && next.expiresAt <= now) {
+                // Dropped here rather than by the pruning pass that may be a frame behind
+                expire(next);
+                continue;
+            }
+            if (next == mOverflowSummary) {
+                mOverflowSummary = null;
+            }
+            if (mSnacks.size() < mMaxQueueSize) {
+                mOverflowCount = 0;
+            }
+            mShowing.add(next);
+            showSnack(next, false);
         }
     }
 
@@ -189,70 +722,384 @@ class SnackContainer extends FrameLayout {
 
         setVisibility(View.VISIBLE);
 
+        holder.shownAt = SystemClock.uptimeMillis();
+        if (mMetrics != null) {
+            mMetrics.onShown(holder.shownAt - holder.enqueuedAt);
+        }
         sendOnShow(holder);
 
-        addView(holder.snackView);
-        holder.messageView.setText(holder.snack.mMessage);
+        SnackViewHolder views = obtainSnackView();
+        views.snackHolder = holder;
+        holder.views = views;
 
-        setButtonParams(holder.snack.mActionButtonParams, holder.button);
-        setButtonParams(holder.snack.mCancelButtonParams, holder.cancelButton);
+        addView(views.snackView);
+        views.bind(holder.snack);
+        if (holder.repeatCount > 1) {
+            views.setRepeatCount(holder.snack, holder.repeatCount);
+        }
+        if (holder.overflowCount > 0) {
+            views.setOverflowCount(holder.overflowCount);
+        }
 
-        holder.snackView.setBackgroundColor(holder.snack.mBackgroundColor.getDefaultColor());
-        if(holder.snack.mHeight > 0)
-            holder.snackView.getLayoutParams().height = this.getPxFromDp(holder.snack.mHeight);
+        mAnimator.animateIn(views.snackView, showImmediately);
 
-        if (showImmediately) {
-            mInAnimationSet.setDuration(0);
-        } else {
-            mInAnimationSet.setDuration(ANIMATION_DURATION);
+        if (holder.snack.mDuration > 0) {
+            if (holder.hideTask == null) {
+                holder.hideTask = new HideTask(holder);
+            }
+            startHideTask(holder);
         }
-        startAnimation(mInAnimationSet);
 
-        if (holder.snack.mDuration > 0) {
-            postDelayed(mHideRunnable, holder.snack.mDuration);
+        views.snackView.setOnTouchListener(mSwipeHandler);
+    }
+
+    /**
+     * Folds a duplicate into the matching snack, restarting its timer if it is on screen or
+     * bumping the repeat count shown once it gets there
+     *
+     * @return true if a matching snack was found
+     */
+    private boolean coalesce(DuplicateKey key) {
+        SnackHolder existing = mDuplicateIndex.get(key);
+        if (existing == null || existing.hiding) {
+            return false;
         }
 
-        holder.snackView.setOnTouchListener(new View.OnTouchListener() {
-            @Override
-            public boolean onTouch(View v, MotionEvent event) {
-                float y = event.getY();
-
-                switch (event.getAction()) {
-                    case MotionEvent.ACTION_MOVE:
-                        int[] location = new int[2];
-                        holder.snackView.getLocationInWindow(location);
-                        if (y > mPreviousY) {
-                            float dy = y - mPreviousY;
-                            holder.snackView.offsetTopAndBottom(Math.round(4 * dy));
-
-                            if ((getResources().getDisplayMetrics().heightPixels - location[1]) - 100 <= 0) {
-                                removeCallbacks(mHideRunnable);
-                                sendOnHide(holder);
-                                startAnimation(mOutAnimationSet);
-
-                                if (!mSnacks.isEmpty()) {
-                                    mSnacks.clear();
-                                }
-                            }
-                        }
-                }
+        existing.repeatCount++;
+        if (existing.views != null) {
+            existing.views.setRepeatCount(existing.snack, existing.repeatCount);
+            if (existing.snack.mDuration > 0) {
+                startHideTask(existing);
+            }
+        }
+        return true;
+    }
 
-                mPreviousY = y;
+    /**
+     * Lays out the message of a queued snack in the background, guessing it will get the same
+     * width as the last message shown
+     */
+    private void prefetchLayout(SnackHolder holder) {
+        if (mMessagePaint != null && mMessageWidth > 0 && holder.snack.mMessage != null) {
+            SnackTextLayouts.get().prefetch(holder.snack.mMessage, mMessagePaint, mMessageWidth);
+        }
+    }
 
-                return true;
+    /**
+     * Drops a snack that is past its time to live, it has already left the queue
+     */
+    private void expire(SnackHolder holder) {
+        removeFromDuplicateIndex(holder);
+        removeFromJournal(holder);
+        if (mMetrics != null) {
+            mMetrics.onExpired();
+        }
+        if (mExpiredListener != null) {
+            mExpiredListener.onExpired(holder.snack.mToken, getStackSize());
+        }
+    }
+
+    private void cancelExpiryTask(SnackHolder holder) {
+        if (holder.expiryTask != null) {
+            mTimer.cancel(holder.expiryTask);
+        }
+    }
+
+    /**
+     * Cancels the expiry of every queued snack, to be called before the queue is cleared
+     */
+    private void clearExpiries() {
+        for (int i = 0; i < mSnacks.size(); i++) {
+            cancelExpiryTask(mSnacks.get(i));
+        }
+    }
+
+    private void addToDuplicateIndex(SnackHolder holder) {
+        if (holder.duplicateKey != null) {
+            mDuplicateIndex.put(holder.duplicateKey, holder);
+        }
+    }
+
+    private void removeFromDuplicateIndex(SnackHolder holder) {
+        if (holder.duplicateKey != null && mDuplicateIndex.get(holder.duplicateKey) == holder) {
+            mDuplicateIndex.remove(holder.duplicateKey);
+        }
+    }
+
+    private void recordDismissed(SnackHolder holder, int reason) {
+        if (mMetrics != null) {
+            mMetrics.onDismissed(reason, SystemClock.uptimeMillis() - holder.shownAt);
+        }
+    }
+
+    /**
+     * Journals a snack that joins the queue, unless it was replayed from the journal
+     */
+    private void addToJournal(SnackHolder holder) {
+        if (mJournal != null && holder.journalId == 0) {
+            holder.journalId = mJournal.add(holder.snack);
+        }
+    }
+
+    private void removeFromJournal(SnackHolder holder) {
+        if (mJournal != null && holder.journalId != 0) {
+            mJournal.remove(holder.journalId);
+        }
+        holder.journalId = 0;
+    }
+
+    private void clearJournal() {
+        if (mJournal != null) {
+            mJournal.clear();
+        }
+    }
+
+    /**
+     * Applies the {@link OverflowPolicy} to a snack that arrived while the queue is full
+     *
+     * @return true if the snack should still be queued
+     */
+    private boolean handleOverflow(SnackHolder holder) {
+        boolean queue = false;
+        switch (mOverflowPolicy) {
+            case DROP_OLDEST:
+                SnackHolder oldest = mSnacks.peekOldest();
+                mSnacks.remove(oldest);
+                removeFromKeyIndex(oldest);
+                cancelExpiryTask(oldest);
+                removeFromDuplicateIndex(oldest);
+                removeFromJournal(oldest);
+                queue = true;
+                break;
+            case COLLAPSE:
+                collapseOverflow(holder);
+                break;
+            case DROP_NEWEST:
+            default:
+                break;
+        }
+
+        mOverflowCount++;
+        if (mOverflowListener != null) {
+            mOverflowListener.onOverflow(mOverflowCount);
+        }
+        return queue;
+    }
+
+    private void collapseOverflow(SnackHolder overflowed) {
+        if (mOverflowSummary == null || !mSnacks.contains(mOverflowSummary)) {
+            Snack snack = overflowed.snack;
+            SnackBarButtonParams noButton = new SnackBarButtonParams(null, 0, null, 0).intern();
+            Snack summary = new Snack(null,
+                    noButton,
+                    noButton,
+                    null,
+                    snack.mDuration > 0 ? snack.mDuration : SnackBar.MED_SNACK,
+                    snack.mBackgroundColor,
+                    snack.mBackgroundColorId,
+                    snack.mHeight,
+                    Integer.MIN_VALUE,
+                    0,
+                    null);
+
+            mOverflowSummary = new SnackHolder(summary, overflowed.visListener, null, null);
+            // Queued here rather than by enqueue(), its wait still counts from now
+            mOverflowSummary.enqueuedAt = SystemClock.uptimeMillis();
+            mSnacks.offer(mOverflowSummary);
+        }
+        mOverflowSummary.overflowCount++;
+    }
+
+    /*
+     * Lanes *
+     */
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if (mMaxLanes < 2 || MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY) {
+            return;
+        }
+
+        int height = getStackedHeight() + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(getMeasuredWidth(),
+                resolveSize(Math.max(height, getMeasuredHeight()), heightMeasureSpec));
+    }
+
+    /**
+     * Lets the frame layout place every snack at the bottom, then lifts each one above the lanes
+     * below it. A snack that moved to another lane slides there from where it was drawn.
+     */
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        // Remember how messages are laid out, so queued ones can be laid out ahead
+        if (!mShowing.isEmpty() && mShowing.get(0).views != null) {
+            SnackViewHolder views = mShowing.get(0).views;
+            if (mMessagePaint == null) {
+                mMessagePaint = new TextPaint();
+                mMessagePaint.set(views.getMessagePaint());
             }
-        });
+            mMessageWidth = views.getMessageWidth();
+        }
+        if (mMaxLanes < 2) {
+            return;
+        }
+
+        int offset = 0;
+        for (int i = 0; i < mShowing.size(); i++) {
+            SnackViewHolder views = mShowing.get(i).views;
+            if (views == null) {
+                continue;
+            }
+            if (views.laidOut && views.laneOffset != offset) {
+                mAnimator.animateShift(views.snackView, offset - views.laneOffset);
+            }
+            views.laneOffset = offset;
+            views.laidOut = true;
+            views.snackView.offsetTopAndBottom(-offset);
+            offset += getLaneHeight(views.snackView);
+        }
+
+        // Snacks sliding out after being cleared keep the lane they left from
+        for (int i = 0; i < getChildCount(); i++) {
+            SnackViewHolder views = SnackViewHolder.of(getChildAt(i));
+            if (!isInLane(views)) {
+                views.snackView.offsetTopAndBottom(-views.laneOffset);
+            }
+        }
+    }
+
+    private int getStackedHeight() {
+        int height = 0;
+        for (int i = 0; i < mShowing.size(); i++) {
+            SnackViewHolder views = mShowing.get(i).views;
+            if (views != null) {
+                height += getLaneHeight(views.snackView);
+            }
+        }
+        for (int i = 0; i < getChildCount(); i++) {
+            SnackViewHolder views = SnackViewHolder.of(getChildAt(i));
+            if (!isInLane(views)) {
+                height = Math.max(height, views.laneOffset + getLaneHeight(views.snackView));
+            }
+        }
+        return height;
+    }
+
+    private int getLaneHeight(View snackView) {
+        MarginLayoutParams params = (MarginLayoutParams) snackView.getLayoutParams();
+        return params.topMargin + snackView.getMeasuredHeight() + params.bottomMargin
+                + getResources().getDimensionPixelSize(R.dimen.snack_bar_lane_spacing);
+    }
+
+    private boolean isInLane(SnackViewHolder views) {
+        return views.snackHolder != null && mShowing.contains(views.snackHolder);
+    }
+
+    /*
+     * View Pool *
+     */
+
+    private SnackViewHolder obtainSnackView() {
+        for (int i = mRecycledViews.size() - 1; i >= 0; i--) {
+            if (mRecycledViews.get(i).isFlat() == mFlatRenderer) {
+                return mRecycledViews.remove(i);
+            }
+        }
+
+        View snackView = mFlatRenderer ? new SnackView(getContext())
+                : LayoutInflater.from(getContext()).inflate(R.layout.sb__snack, this, false);
+        return prepareSnackView(snackView);
+    }
+
+    private SnackViewHolder prepareSnackView(View snackView) {
+        SnackViewHolder views = SnackViewHolder.of(snackView);
+        views.setOnButtonClickListeners(mButtonListener, mCancelListener);
+        return views;
+    }
+
+    /**
+     * Adds a caller supplied snack view to the pool unless it is already bound or pooled
+     */
+    void offerSnackView(View snackView) {
+        if (snackView == null || snackView.getParent() == this) {
+            return;
+        }
+        if (snackView.getParent() != null) {
+            ((ViewGroup) snackView.getParent()).removeView(snackView);
+        }
+
+        SnackViewHolder views = prepareSnackView(snackView);
+        if (views.snackHolder == null && mRecycledViews.size() < MAX_RECYCLED_VIEWS
+                && !mRecycledViews.contains(views)) {
+            mRecycledViews.add(views);
+        }
+    }
+
+    private void recycleSnackViews() {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            recycleSnackView(SnackViewHolder.of(getChildAt(i)));
+        }
+    }
+
+    private void recycleSnackView(SnackViewHolder views) {
+        removeView(views.snackView);
+        views.snackView.setOnTouchListener(null);
+        views.laneOffset = 0;
+        views.laidOut = false;
+        if (views.snackHolder != null) {
+            views.snackHolder.views = null;
+            views.snackHolder = null;
+        }
+        if (mRecycledViews.size() < MAX_RECYCLED_VIEWS && !mRecycledViews.contains(views)) {
+            mRecycledViews.add(views);
+        }
+    }
+
+    private final View.OnClickListener mButtonListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            SnackHolder holder = SnackViewHolder.ofButton(v).snackHolder;
+            if (holder != null && holder.clickListener != null) {
+                holder.clickListener.onMessageClick(holder.snack.mToken);
+            }
+            if (holder != null && !holder.hiding) {
+                hideSnack(holder, SnackBarMetrics.DISMISSED_BY_BUTTON);
+            }
+        }
+    };
+
+    private final View.OnClickListener mCancelListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            SnackHolder holder = SnackViewHolder.ofButton(v).snackHolder;
+            if (holder != null && holder.cancelClickListener != null) {
+                holder.cancelClickListener.onCancelClick();
+            }
+            if (holder != null && !holder.hiding) {
+                hideSnack(holder, SnackBarMetrics.DISMISSED_BY_BUTTON);
+            }
+        }
+    };
+
+    private int getStackSize() {
+        return mSnacks.size() + mShowing.size();
     }
 
     private void sendOnHide(SnackHolder snackHolder) {
         if (snackHolder.visListener != null) {
-            snackHolder.visListener.onHide(mSnacks.size());
+            snackHolder.visListener.onHide(getStackSize());
         }
     }
 
     private void sendOnShow(SnackHolder snackHolder) {
+        if (mBatchShown != null) {
+            mBatchShown.add(snackHolder);
+            return;
+        }
         if (snackHolder.visListener != null) {
-            snackHolder.visListener.onShow(mSnacks.size());
+            snackHolder.visListener.onShow(getStackSize());
         }
     }
 
@@ -260,11 +1107,58 @@ class SnackContainer extends FrameLayout {
      * Runnable stuff
      */
 
-    private final Runnable mHideRunnable = new Runnable() {
+    /**
+     * Drops a queued snack once its time to live is up. It is cancelled whenever the snack
+     * leaves the queue, so it only ever fires for a snack that is still waiting.
+     */
+    private class ExpiryTask extends SnackTimer.Task {
+        private final SnackHolder mHolder;
+
+        ExpiryTask(SnackHolder holder) {
+            mHolder = holder;
+        }
+
+        @Override
+        public void run() {
+            if (mSnacks.remove(mHolder)) {
+                removeFromKeyIndex(mHolder);
+                if (mHolder == mOverflowSummary) {
+                    mOverflowSummary = null;
+                }
+                expire(mHolder);
+            }
+        }
+    }
+
+    private class HideTask extends SnackTimer.Task {
+        private final SnackHolder mHolder;
+
+        HideTask(SnackHolder holder) {
+            mHolder = holder;
+        }
+
+        @Override
+        public void run() {
+            if (!mHolder.hiding) {
+                hideSnack(mHolder, SnackBarMetrics.DISMISSED_BY_TIMEOUT);
+            }
+        }
+    }
+
+    private final Runnable mDrainRunnable = new Runnable() {
         @Override
         public void run() {
-            if (View.VISIBLE == getVisibility()) {
-                startAnimation(mOutAnimationSet);
+            // Cleared before draining so a submission racing with this pass schedules another one
+            mDrainScheduled.set(false);
+
+            beginBatch();
+            try {
+                SnackHolder holder;
+                while ((holder = mSubmissions.poll()) != null) {
+                    enqueue(holder, false);
+                }
+            } finally {
+                endBatch();
             }
         }
     };
@@ -273,57 +1167,223 @@ class SnackContainer extends FrameLayout {
      * Restoration *
      */
 
-    public void restoreState(Bundle state, View v) {
-        Parcelable[] messages = state.getParcelableArray(SAVED_MSGS);
-        boolean showImmediately = true;
+    static boolean hasSavedSnacks(Bundle state) {
+        if (state == null) {
+            return false;
+        }
+        SavedSnackQueue queue = state.getParcelable(SAVED_QUEUE);
+        return queue != null && !queue.isEmpty();
+    }
+
+    public void restoreState(Bundle state, View v, OnMessageClickListener clickListener,
+                             OnCancelClickListener cancelClickListener) {
+        mRestoredFromState = true;
+        SavedSnackQueue queue = state.getParcelable(SAVED_QUEUE);
+        if (queue == null) {
+            return;
+        }
+        Snack[] messages = queue.getSnacks(SnackStyleCache.get(getResources()));
+        offerSnackView(v);
+
+        for (int i = 0; i < messages.length; i++) {
+            SnackHolder holder = new SnackHolder(messages[i], null, clickListener, cancelClickListener);
+            // Keeps the journal record of the snack, it is removed once the snack is hidden
+            holder.journalId = queue.getJournalId(i);
+            enqueue(holder, i == 0);
+        }
+    }
+
+    /**
+     * Journals every snack queued from now on, pending snacks are still journaled as they leave
+     * the queue
+     *
+     * @param journal the journal to write to
+     */
+    public void setJournal(SnackJournal journal) {
+        mJournal = journal;
+    }
+
+    /**
+     * Queues the snacks replayed from the journal. If the queue was already restored from a
+     * saved instance state, which holds the same snacks, they are dropped from the journal
+     * unless a restored snack still refers to them.
+     */
+    public void restoreJournal(List<SnackJournal.Entry> entries, View v, OnMessageClickListener clickListener,
+                               OnCancelClickListener cancelClickListener) {
+        offerSnackView(v);
+        for (SnackJournal.Entry entry : entries) {
+            if (mRestoredFromState || mJournal == null) {
+                if (mJournal != null && !isJournaled(entry.id)) {
+                    mJournal.remove(entry.id);
+                }
+                continue;
+            }
+
+            SnackHolder holder = new SnackHolder(entry.snack.resolveColors(SnackStyleCache.get(getResources())),
+                    null, clickListener, cancelClickListener);
+            holder.journalId = entry.id;
+            enqueue(holder, false);
+        }
+    }
 
-        for (Parcelable message : messages) {
-            showSnack((Snack) message, v, null, showImmediately);
-            showImmediately = false;
+    /**
+     * @return true if a snack showing or queued was journaled under the given id
+     */
+    private boolean isJournaled(long journalId) {
+        for (int i = 0; i < mShowing.size(); i++) {
+            if (mShowing.get(i).journalId == journalId) {
+                return true;
+            }
         }
+        List<SnackHolder> pending = mSnacks.toSortedList();
+        for (int i = 0; i < pending.size(); i++) {
+            if (pending.get(i).journalId == journalId) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public Bundle saveState() {
         Bundle outState = new Bundle();
 
-        final int count = mSnacks.size();
-        final Snack[] snacks = new Snack[count];
+        final List<SnackHolder> pending = mSnacks.toSortedList();
+        final Snack[] snacks = new Snack[getStackSize()];
+        final long[] journalIds = new long[snacks.length];
         int i = 0;
-        for (SnackHolder holder : mSnacks) {
-            snacks[i++] = holder.snack;
+        for (SnackHolder holder : mShowing) {
+            journalIds[i] = holder.journalId;
+            snacks[i++] = getSavedSnack(holder);
+        }
+        for (SnackHolder holder : pending) {
+            journalIds[i] = holder.journalId;
+            snacks[i++] = getSavedSnack(holder);
         }
 
-        outState.putParcelableArray(SAVED_MSGS, snacks);
+        outState.putParcelable(SAVED_QUEUE, new SavedSnackQueue(snacks, journalIds));
         return outState;
     }
 
-    private static class SnackHolder {
-        final View snackView;
-        final TextView messageView;
-        final TextView button;
-        final TextView cancelButton;
+    /**
+     * Returns the snack to save for the holder, spelling out the message of an overflow summary
+     */
+    private Snack getSavedSnack(SnackHolder holder) {
+        Snack snack = holder.snack;
+        if (holder.overflowCount == 0) {
+            return snack;
+        }
+
+        String message = getResources().getQuantityString(R.plurals.sb__overflow_summary,
+                holder.overflowCount, holder.overflowCount);
+        return new Snack(message, snack.mActionButtonParams, snack.mCancelButtonParams, snack.mToken,
+                snack.mDuration, snack.mBackgroundColor, snack.mBackgroundColorId, snack.mHeight,
+                snack.mPriority, snack.mTimeToLive, snack.mKey);
+    }
 
+    static class SnackHolder extends SnackQueue.Entry {
         final Snack snack;
         final OnVisibilityChangeListener visListener;
-
-        private SnackHolder(Snack snack, View snackView, OnVisibilityChangeListener listener) {
-            this.snackView = snackView;
-            button = (TextView) snackView.findViewById(R.id.snackButton);
-            cancelButton = (TextView) snackView.findViewById(R.id.snackCancelButton);
-            messageView = (TextView) snackView.findViewById(R.id.snackMessage);
-
+        final OnMessageClickListener clickListener;
+        final OnCancelClickListener cancelClickListener;
+
+        /**
+         * The pooled view this snack is rendered into, or null while it is queued
+         */
+        SnackViewHolder views;
+
+        /**
+         * Uptime at which the snack was queued and shown, for metrics
+         */
+        long enqueuedAt;
+        long shownAt;
+
+        /**
+         * Uptime after which the queued snack is dropped unseen, or 0 if it waits forever
+         */
+        long expiresAt;
+
+        /**
+         * Hides the snack once it has been on screen for its duration, created when it is
+         * first shown
+         */
+        HideTask hideTask;
+
+        /**
+         * Drops the snack if it is still queued at {@link #expiresAt}, created when a snack
+         * with a time to live is first queued
+         */
+        ExpiryTask expiryTask;
+
+        /**
+         * Whether the snack on screen is sliding out, and why, one of the {@code DISMISSED_BY}
+         * constants of {@link SnackBarMetrics}
+         */
+        boolean hiding;
+        int hideReason = SnackBarMetrics.DISMISSED_BY_TIMEOUT;
+
+        /**
+         * The id this snack was journaled under, or 0 if it is not in a journal
+         */
+        long journalId;
+
+        /**
+         * The number of identical snacks folded into this one, including itself
+         */
+        int repeatCount = 1;
+
+        /**
+         * The number of overflowed snacks this summary stands in for, zero for regular snacks
+         */
+        int overflowCount;
+
+        DuplicateKey duplicateKey;
+
+        private SnackHolder(Snack snack, OnVisibilityChangeListener listener,
+                            OnMessageClickListener clickListener, OnCancelClickListener cancelClickListener) {
             this.snack = snack;
             visListener = listener;
+            this.clickListener = clickListener;
+            this.cancelClickListener = cancelClickListener;
+            priority = snack.mPriority;
         }
     }
 
-    /*
-     * Helpers
+    /**
+     * Identifies snacks that would look the same on screen: same message, action title and token
      */
-    private int getPxFromDp(int dp) {
-        Resources rs = getResources();
-        int pxConverter = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 1, rs.getDisplayMetrics());
-        return pxConverter * dp;
+    static final class DuplicateKey {
+        private final String message;
+        private final String actionTitle;
+        private final Parcelable token;
+        private final int hash;
+
+        DuplicateKey(Snack snack) {
+            message = snack.mMessage;
+            actionTitle = snack.mActionButtonParams.mTitle;
+            token = snack.mToken;
+
+            int result = message != null ? message.hashCode() : 0;
+            result = 31 * result + (actionTitle != null ? actionTitle.hashCode() : 0);
+            result = 31 * result + (token != null ? token.hashCode() : 0);
+            hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DuplicateKey)) return false;
+
+            DuplicateKey other = (DuplicateKey) o;
+            return hash == other.hash
+                    && (message != null ? message.equals(other.message) : other.message == null)
+                    && (actionTitle != null ? actionTitle.equals(other.actionTitle) : other.actionTitle == null)
+                    && (token != null ? token.equals(other.token) : other.token == null);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
 }
@@ -0,0 +1,118 @@
+package com.github.mrengineer13.snackbar;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.WindowManager;
+
+import com.github.mrengineer13.snackbar.SnackBar.OnFrameStatsListener;
+
+/**
+ * Watches the frames drawn while a snack slides in or out and reports how smooth the transition
+ * was. It only listens to the {@link Choreographer} between {@link #start(Object, boolean)} and
+ * {@link #stop(Object, boolean)}, and does not allocate in between.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class SnackFrameMonitor implements Choreographer.FrameCallback {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private final OnFrameStatsListener mListener;
+
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+
+    private final long mFrameIntervalNanos;
+
+    /**
+     * The transition being monitored, null while idle
+     */
+    private Object mTransition;
+    private boolean mEntering;
+
+    private long mFirstFrameNanos;
+    private long mLastFrameNanos;
+    private int mFrameCount;
+    private int mDroppedFrames;
+    private long mWorstFrameNanos;
+
+    SnackFrameMonitor(Context context, OnFrameStatsListener listener) {
+        mListener = listener;
+
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        Display display = windowManager.getDefaultDisplay();
+        float refreshRate = display.getRefreshRate();
+        if (refreshRate < 1) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        mFrameIntervalNanos = (long) (NANOS_PER_SECOND / refreshRate);
+    }
+
+    /**
+     * Monitors a new transition, dropping the one being monitored without reporting it. When
+     * several snacks move at once their frames are shared, so only the latest is monitored.
+     *
+     * @param transition identifies the transition to {@link #stop(Object, boolean)}
+     * @param entering true for a snack sliding in, false for one sliding out
+     */
+    void start(Object transition, boolean entering) {
+        if (mTransition != null) {
+            mChoreographer.removeFrameCallback(this);
+        }
+        mTransition = transition;
+        mEntering = entering;
+        mFirstFrameNanos = 0;
+        mLastFrameNanos = 0;
+        mFrameCount = 0;
+        mDroppedFrames = 0;
+        mWorstFrameNanos = 0;
+        mChoreographer.postFrameCallback(this);
+    }
+
+    /**
+     * Stops monitoring the given transition, if it is the one being monitored
+     *
+     * @param transition the transition passed to {@link #start(Object, boolean)}
+     * @param report true to pass the stats to the listener, false if the transition was canceled
+     */
+    void stop(Object transition, boolean report) {
+        if (mTransition == null || mTransition != transition) {
+            return;
+        }
+        mTransition = null;
+        mChoreographer.removeFrameCallback(this);
+
+        if (report && mFrameCount > 0) {
+            mListener.onFrameStats(mEntering, mFrameCount, mDroppedFrames,
+                    (mLastFrameNanos - mFirstFrameNanos) / 1000000, mWorstFrameNanos / 1000000);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mTransition == null) {
+            return;
+        }
+
+        if (mLastFrameNanos == 0) {
+            mFirstFrameNanos = frameTimeNanos;
+        } else {
+            long interval = frameTimeNanos - mLastFrameNanos;
+            if (interval > mWorstFrameNanos) {
+                mWorstFrameNanos = interval;
+            }
+            // A frame that took n vsync intervals means n - 1 frames were skipped
+            long skipped = (interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+            if (skipped > 0) {
+                mDroppedFrames += skipped;
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+        mFrameCount++;
+
+        mChoreographer.postFrameCallback(this);
+    }
+}
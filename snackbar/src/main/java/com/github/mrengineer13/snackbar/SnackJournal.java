@@ -0,0 +1,576 @@
+package com.github.mrengineer13.snackbar;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only file of the snacks queued in a {@link SnackContainer}, so they survive the
+ * process being killed and not only a saved instance state.
+ * <p>
+ * Every change to the queue is one record: a snack added, a snack removed or the queue cleared.
+ * Records are encoded on the calling thread and handed to a single background thread, which
+ * collects them for {@link #FLUSH_DELAY} and appends the batch through one {@link FileChannel}
+ * write. Once the file holds mostly removed snacks it is rewritten with the live ones only.
+ * The main thread never touches the file.
+ * <p>
+ * Colors and icons are stored as resource ids, and the file is discarded when the app is
+ * updated since those ids may have changed. Colors that were not set from a resource fall back
+ * to the defaults, tokens that cannot be flattened are not restored.
+ */
+class SnackJournal implements Handler.Callback {
+
+    private static final String TAG = "SnackJournal";
+
+    /**
+     * A snack read back from the journal, with the id it was journaled under
+     */
+    static class Entry {
+        final long id;
+        final Snack snack;
+
+        Entry(long id, Snack snack) {
+            this.id = id;
+            this.snack = snack;
+        }
+    }
+
+    interface OnReplayListener {
+
+        /**
+         * Gets called on the main thread with the snacks that were pending when the journal
+         * was last written, oldest first
+         */
+        void onReplay(List<Entry> entries);
+    }
+
+    private static final int MAGIC = 0x534e4b4a;
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte RECORD_ADD = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_CLEAR = 3;
+
+    /**
+     * Length prefix, record type and snack id
+     */
+    private static final int RECORD_HEADER_SIZE = 4 + 1 + 8;
+
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private static final long FLUSH_DELAY = 250;
+
+    private static final int COMPACT_MIN_RECORDS = 64;
+
+    private static final int MSG_OPEN = 0;
+    private static final int MSG_RECORD = 1;
+    private static final int MSG_FLUSH = 2;
+    private static final int MSG_REPLAY = 3;
+
+    private static final HashMap<String, SnackJournal> sJournals = new HashMap<>();
+
+    private static HandlerThread sThread;
+
+    private final Context mContext;
+
+    private final String mName;
+
+    private final Handler mHandler;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Starts from the clock so ids handed out in this process never collide with the ones
+     * still in the file from an earlier one
+     */
+    private final AtomicLong mNextId = new AtomicLong(System.currentTimeMillis() << 20);
+
+    /*
+     * Only touched on the journal thread *
+     */
+
+    private File mFile;
+
+    private FileChannel mChannel;
+
+    /**
+     * The records of the snacks still pending, by id, in the order they were added
+     */
+    private final LinkedHashMap<Long, byte[]> mLive = new LinkedHashMap<>();
+
+    /**
+     * The ids read from the file on open, the only ones a replay hands back
+     */
+    private final HashSet<Long> mReplayIds = new HashSet<>();
+
+    private int mRecordCount;
+
+    private final ByteArrayOutputStream mPending = new ByteArrayOutputStream();
+
+    private SnackJournal(Context context, String name) {
+        mContext = context.getApplicationContext();
+        mName = name;
+        mHandler = new Handler(getThread().getLooper(), this);
+        mHandler.sendEmptyMessage(MSG_OPEN);
+    }
+
+    /**
+     * Returns the journal with the given name, opening it in the background on first use
+     *
+     * @param context the context used to locate the file
+     * @param name the name of the journal, one per host of a {@link SnackContainer}
+     * @return the journal
+     */
+    static SnackJournal get(Context context, String name) {
+        synchronized (sJournals) {
+            SnackJournal journal = sJournals.get(name);
+            if (journal == null) {
+                journal = new SnackJournal(context, name);
+                sJournals.put(name, journal);
+            }
+            return journal;
+        }
+    }
+
+    private static synchronized HandlerThread getThread() {
+        if (sThread == null) {
+            sThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            sThread.start();
+        }
+        return sThread;
+    }
+
+    /**
+     * Journals a snack added to the queue
+     *
+     * @param snack the queued snack
+     * @return the id to remove the snack with
+     */
+    long add(Snack snack) {
+        long id = mNextId.getAndIncrement();
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeByte(RECORD_ADD);
+            out.writeLong(id);
+            writeSnack(out, snack);
+            out.close();
+
+            byte[] record = bytes.toByteArray();
+            if (record.length > MAX_RECORD_SIZE) {
+                return 0;
+            }
+            ByteBuffer.wrap(record).putInt(0, record.length - 4);
+            mHandler.obtainMessage(MSG_RECORD, record).sendToTarget();
+            return id;
+        } catch (IOException e) {
+            // Not thrown by in memory streams
+            return 0;
+        }
+    }
+
+    /**
+     * Journals a snack leaving the queue
+     *
+     * @param id the id returned by {@link #add(Snack)}
+     */
+    void remove(long id) {
+        if (id != 0) {
+            mHandler.obtainMessage(MSG_RECORD, createRecord(RECORD_REMOVE, id)).sendToTarget();
+        }
+    }
+
+    /**
+     * Journals the whole queue being cleared
+     */
+    void clear() {
+        mHandler.obtainMessage(MSG_RECORD, createRecord(RECORD_CLEAR, 0)).sendToTarget();
+    }
+
+    /**
+     * Reads back the snacks that were pending when the journal was opened and are still pending
+     *
+     * @param listener gets the snacks on the main thread
+     */
+    void replay(OnReplayListener listener) {
+        mHandler.obtainMessage(MSG_REPLAY, listener).sendToTarget();
+    }
+
+    private static byte[] createRecord(byte type, long id) {
+        return ByteBuffer.allocate(RECORD_HEADER_SIZE)
+                .putInt(RECORD_HEADER_SIZE - 4)
+                .put(type)
+                .putLong(id)
+                .array();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_OPEN:
+                open();
+                return true;
+            case MSG_RECORD:
+                append((byte[]) msg.obj);
+                return true;
+            case MSG_FLUSH:
+                flush();
+                return true;
+            case MSG_REPLAY:
+                replayOnJournalThread((OnReplayListener) msg.obj);
+                return true;
+        }
+        return false;
+    }
+
+    /*
+     * Journal Thread *
+     */
+
+    private void open() {
+        File dir = new File(mContext.getFilesDir(), "snackbar");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create " + dir);
+            return;
+        }
+        mFile = new File(dir, mName + ".journal");
+
+        long validLength = mFile.exists() ? read() : -1;
+        mReplayIds.addAll(mLive.keySet());
+
+        try {
+            if (validLength < 0 || mLive.isEmpty()) {
+                compact();
+            } else {
+                mChannel = new RandomAccessFile(mFile, "rw").getChannel();
+                // Drops a record torn by the process dying mid-write
+                mChannel.truncate(validLength);
+                mChannel.position(validLength);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot open " + mFile, e);
+            closeChannel();
+        }
+    }
+
+    /**
+     * Reads the records of the file into {@link #mLive}
+     *
+     * @return the length of the file up to the last complete record, or -1 if the file was
+     * written by another version of the app or the journal
+     */
+    private long read() {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readInt() != getAppVersion()) {
+                return -1;
+            }
+            long validLength = 12;
+
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < RECORD_HEADER_SIZE - 4 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+
+                byte[] record = new byte[length + 4];
+                ByteBuffer.wrap(record).putInt(length);
+                try {
+                    in.readFully(record, 4, length);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                apply(record);
+                validLength += record.length;
+            }
+            return validLength;
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private void append(byte[] record) {
+        apply(record);
+        mPending.write(record, 0, record.length);
+
+        if (!mHandler.hasMessages(MSG_FLUSH)) {
+            mHandler.sendEmptyMessageDelayed(MSG_FLUSH, FLUSH_DELAY);
+        }
+    }
+
+    private void apply(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        byte type = buffer.get(4);
+        long id = buffer.getLong(5);
+
+        switch (type) {
+            case RECORD_ADD:
+                mLive.put(id, record);
+                break;
+            case RECORD_REMOVE:
+                mLive.remove(id);
+                break;
+            case RECORD_CLEAR:
+                mLive.clear();
+                break;
+        }
+        mRecordCount++;
+    }
+
+    private void flush() {
+        if (mChannel == null || mPending.size() == 0) {
+            mPending.reset();
+            return;
+        }
+
+        try {
+            if (mRecordCount >= COMPACT_MIN_RECORDS && mRecordCount > 4 * mLive.size()) {
+                compact();
+            } else {
+                ByteBuffer batch = ByteBuffer.wrap(mPending.toByteArray());
+                while (batch.hasRemaining()) {
+                    mChannel.write(batch);
+                }
+                mChannel.force(false);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write " + mFile, e);
+            closeChannel();
+        }
+        mPending.reset();
+    }
+
+    /**
+     * Rewrites the file with the live records only, which also covers the pending ones
+     */
+    private void compact() throws IOException {
+        closeChannel();
+
+        File tmp = new File(mFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            FileChannel channel = out.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(12).putInt(MAGIC).putInt(FORMAT_VERSION).putInt(getAppVersion());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            for (byte[] record : mLive.values()) {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(false);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(mFile)) {
+            throw new IOException("Cannot replace " + mFile);
+        }
+
+        mRecordCount = mLive.size();
+        mChannel = new RandomAccessFile(mFile, "rw").getChannel();
+        mChannel.position(mChannel.size());
+    }
+
+    private void replayOnJournalThread(final OnReplayListener listener) {
+        final ArrayList<Entry> entries = new ArrayList<>();
+        for (Map.Entry<Long, byte[]> live : mLive.entrySet()) {
+            if (!mReplayIds.contains(live.getKey())) {
+                continue;
+            }
+            Snack snack = readSnack(live.getValue());
+            if (snack != null) {
+                entries.add(new Entry(live.getKey(), snack));
+            }
+        }
+        // A journal is replayed once per process
+        mReplayIds.clear();
+
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onReplay(entries);
+            }
+        });
+    }
+
+    private void closeChannel() {
+        closeQuietly(mChannel);
+        mChannel = null;
+    }
+
+    private int getAppVersion() {
+        try {
+            return mContext.getPackageManager().getPackageInfo(mContext.getPackageName(), 0).versionCode;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /*
+     * Snack Encoding *
+     */
+
+    private static void writeSnack(DataOutputStream out, Snack snack) throws IOException {
+        writeString(out, snack.mMessage);
+        writeButtonParams(out, snack.mActionButtonParams);
+        writeButtonParams(out, snack.mCancelButtonParams);
+        writeToken(out, snack.mToken);
+        out.writeShort(snack.mDuration);
+        out.writeInt(snack.mBackgroundColorId);
+        out.writeInt(snack.mHeight);
+        out.writeInt(snack.mPriority);
+        // The time to live is kept as a deadline, so it keeps running while the process is dead
+        out.writeLong(snack.mTimeToLive > 0 ? System.currentTimeMillis() + snack.mTimeToLive : 0);
+        writeString(out, snack.mKey);
+    }
+
+    private static Snack readSnack(byte[] record) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, RECORD_HEADER_SIZE,
+                record.length - RECORD_HEADER_SIZE));
+        try {
+            String message = readString(in);
+            SnackBarButtonParams actionParams = readButtonParams(in);
+            SnackBarButtonParams cancelParams = readButtonParams(in);
+            Parcelable token = readToken(in);
+            short duration = in.readShort();
+            int backgroundColorId = in.readInt();
+            int height = in.readInt();
+            int priority = in.readInt();
+            long expiresAt = in.readLong();
+            // A snack that expired while the process was dead is replayed only to expire at once
+            int timeToLive = expiresAt != 0
+                    ? (int) Math.min(Integer.MAX_VALUE, Math.max(1, expiresAt - System.currentTimeMillis())) : 0;
+            String key = readString(in);
+
+            return new Snack(message, actionParams, cancelParams, token, duration, null, backgroundColorId,
+                    height, priority, timeToLive, key);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeButtonParams(DataOutputStream out, SnackBarButtonParams params) throws IOException {
+        out.writeBoolean(params != null);
+        if (params != null) {
+            writeString(out, params.mTitle);
+            out.writeInt(params.mIcon);
+            out.writeInt(params.mTextColorId);
+        }
+    }
+
+    private static SnackBarButtonParams readButtonParams(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        String title = readString(in);
+        int icon = in.readInt();
+        return new SnackBarButtonParams(title, icon, null, in.readInt()).intern();
+    }
+
+    /**
+     * Flattens the token through a {@link Parcel}, which only holds within one build of the
+     * app. Tokens holding binders or file descriptors cannot be flattened and are dropped.
+     */
+    private static void writeToken(DataOutputStream out, Parcelable token) throws IOException {
+        byte[] bytes = null;
+        if (token != null) {
+            Parcel parcel = Parcel.obtain();
+            try {
+                parcel.writeParcelable(token, 0);
+                bytes = parcel.marshall();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Cannot journal token " + token, e);
+            } finally {
+                parcel.recycle();
+            }
+        }
+
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static Parcelable readToken(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, length);
+            parcel.setDataPosition(0);
+            return parcel.readParcelable(SnackJournal.class.getClassLoader());
+        } catch (RuntimeException e) {
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.mrengineer13.snackbar;
+
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Gravity;
+import android.view.WindowManager;
+import android.widget.LinearLayout;
+
+/**
+ * The floating window shared by every SnackBar built from a {@link Context} alone. The window
+ * is added while a builder holds it or messages are queued in it, and removed once the queue
+ * has drained and no builder holds it, so a process has at most one floating window surface.
+ * Created on the main thread.
+ */
+class SnackOverlay {
+
+    private static SnackOverlay sOverlay;
+
+    private final WindowManager mWindowManager;
+
+    private final WindowManager.LayoutParams mParams;
+
+    private final LinearLayout mRootView;
+
+    private final SnackBar mSnackBar;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The number of builders holding the window, only touched on the main thread
+     */
+    private int mHolds;
+
+    private boolean mAttached;
+
+    /**
+     * Returns the overlay of the process, creating it on first use. Its window is only added
+     * once it is acquired.
+     *
+     * @param context any context, the overlay keeps the application context
+     * @return the shared overlay
+     */
+    static SnackOverlay get(Context context) {
+        if (sOverlay == null) {
+            sOverlay = new SnackOverlay(context.getApplicationContext());
+        }
+        return sOverlay;
+    }
+
+    private SnackOverlay(Context context) {
+        mWindowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        mRootView = new LinearLayout(context);
+
+        mParams = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.WRAP_CONTENT,
+                WindowManager.LayoutParams.TYPE_PHONE,
+                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE,
+                PixelFormat.TRANSLUCENT);
+        mParams.gravity = Gravity.BOTTOM;
+
+        mSnackBar = new SnackBar(context, mRootView);
+        mSnackBar.setOnIdleListener(new Runnable() {
+            @Override
+            public void run() {
+                // Posted so the window is not removed while the container is still hiding
+                mMainHandler.post(mRemoveIfIdle);
+            }
+        });
+    }
+
+    SnackBar getSnackBar() {
+        return mSnackBar;
+    }
+
+    /**
+     * Holds the window, adding it if needed. Messages shown from another thread are queued on
+     * the main thread after the window is added.
+     */
+    void acquire() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            mAcquire.run();
+        } else {
+            mMainHandler.post(mAcquire);
+        }
+    }
+
+    /**
+     * Lets go of a hold taken by {@link #acquire()}. The window stays until the messages
+     * queued before this call have been shown.
+     */
+    void release() {
+        mMainHandler.post(mRelease);
+    }
+
+    private final Runnable mAcquire = new Runnable() {
+        @Override
+        public void run() {
+            mHolds++;
+            if (!mAttached) {
+                mWindowManager.addView(mRootView, mParams);
+                mAttached = true;
+            }
+        }
+    };
+
+    private final Runnable mRelease = new Runnable() {
+        @Override
+        public void run() {
+            if (mHolds > 0) {
+                mHolds--;
+            }
+            mRemoveIfIdle.run();
+        }
+    };
+
+    private final Runnable mRemoveIfIdle = new Runnable() {
+        @Override
+        public void run() {
+            if (!mAttached || mHolds > 0 || !mSnackBar.isIdle()) {
+                return;
+            }
+            mWindowManager.removeView(mRootView);
+            mAttached = false;
+        }
+    };
+}
@@ -0,0 +1,256 @@
+package com.github.mrengineer13.snackbar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Binary heap of pending snacks, ordered by descending priority and then by insertion order so
+ * snacks of the same priority keep their first in, first out order. Every entry remembers its
+ * slot in the heap, which keeps removal of an arbitrary entry at O(log n), and is linked to its
+ * neighbours in insertion order so the oldest entry can be found in O(1).
+ */
+class SnackQueue<E extends SnackQueue.Entry> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    abstract static class Entry {
+        int priority;
+        long sequence;
+        int queueIndex = -1;
+        Entry older;
+        Entry newer;
+    }
+
+    private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry lhs, Entry rhs) {
+            if (lhs.priority != rhs.priority) {
+                return lhs.priority > rhs.priority ? -1 : 1;
+            }
+            return lhs.sequence < rhs.sequence ? -1 : (lhs.sequence == rhs.sequence ? 0 : 1);
+        }
+    };
+
+    private Entry[] mHeap = new Entry[DEFAULT_CAPACITY];
+
+    private int mSize;
+
+    private long mNextSequence;
+
+    private Entry mOldest;
+
+    private Entry mNewest;
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public void offer(E entry) {
+        if (mSize == mHeap.length) {
+            Entry[] grown = new Entry[mSize * 2];
+            System.arraycopy(mHeap, 0, grown, 0, mSize);
+            mHeap = grown;
+        }
+        entry.sequence = mNextSequence++;
+        entry.older = mNewest;
+        entry.newer = null;
+        if (mNewest != null) {
+            mNewest.newer = entry;
+        } else {
+            mOldest = entry;
+        }
+        mNewest = entry;
+
+        mHeap[mSize] = entry;
+        entry.queueIndex = mSize;
+        siftUp(mSize++);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return mSize == 0 ? null : (E) mHeap[0];
+    }
+
+    public E poll() {
+        return mSize == 0 ? null : removeAt(0);
+    }
+
+    /**
+     * Returns the entry that was offered first, regardless of its priority
+     *
+     * @return the oldest entry or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E peekOldest() {
+        return (E) mOldest;
+    }
+
+    public boolean contains(E entry) {
+        int index = entry.queueIndex;
+        return index >= 0 && index < mSize && mHeap[index] == entry;
+    }
+
+    public boolean remove(E entry) {
+        if (!contains(entry)) {
+            return false;
+        }
+        removeAt(entry.queueIndex);
+        return true;
+    }
+
+    /**
+     * Returns the entry stored at the given heap slot, in no particular order
+     *
+     * @param index a slot between 0 and {@link #size()}
+     * @return the entry in that slot
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        return (E) mHeap[index];
+    }
+
+    /**
+     * Puts the replacement in the place of a queued entry. It keeps the age of the entry, so
+     * it is polled where the entry would have been unless its priority differs.
+     *
+     * @param entry the queued entry
+     * @param replacement the entry to queue instead
+     * @return false if the entry is not queued
+     */
+    public boolean replace(E entry, E replacement) {
+        if (!contains(entry)) {
+            return false;
+        }
+        final int index = entry.queueIndex;
+        replacement.sequence = entry.sequence;
+        replacement.older = entry.older;
+        replacement.newer = entry.newer;
+        if (entry.older != null) {
+            entry.older.newer = replacement;
+        } else {
+            mOldest = replacement;
+        }
+        if (entry.newer != null) {
+            entry.newer.older = replacement;
+        } else {
+            mNewest = replacement;
+        }
+        entry.older = null;
+        entry.newer = null;
+        entry.queueIndex = -1;
+
+        mHeap[index] = replacement;
+        replacement.queueIndex = index;
+        siftDown(index);
+        if (mHeap[index] == replacement) {
+            siftUp(index);
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mHeap[i].queueIndex = -1;
+            mHeap[i].older = null;
+            mHeap[i].newer = null;
+            mHeap[i] = null;
+        }
+        mSize = 0;
+        mOldest = null;
+        mNewest = null;
+    }
+
+    /**
+     * Copies the pending entries in the order they would be polled
+     *
+     * @return a new list of the entries
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> toSortedList() {
+        Entry[] entries = new Entry[mSize];
+        System.arraycopy(mHeap, 0, entries, 0, mSize);
+        Arrays.sort(entries, ORDER);
+        List<E> sorted = new ArrayList<>(mSize);
+        Collections.addAll(sorted, (E[]) entries);
+        return sorted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E removeAt(int index) {
+        Entry removed = mHeap[index];
+        int last = --mSize;
+        if (index != last) {
+            Entry moved = mHeap[last];
+            mHeap[index] = moved;
+            moved.queueIndex = index;
+            mHeap[last] = null;
+            siftDown(index);
+            if (mHeap[index] == moved) {
+                siftUp(index);
+            }
+        } else {
+            mHeap[last] = null;
+        }
+        removed.queueIndex = -1;
+        unlink(removed);
+        return (E) removed;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.older != null) {
+            entry.older.newer = entry.newer;
+        } else {
+            mOldest = entry.newer;
+        }
+        if (entry.newer != null) {
+            entry.newer.older = entry.older;
+        } else {
+            mNewest = entry.older;
+        }
+        entry.older = null;
+        entry.newer = null;
+    }
+
+    private void siftUp(int index) {
+        Entry entry = mHeap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            Entry parentEntry = mHeap[parent];
+            if (ORDER.compare(entry, parentEntry) >= 0) {
+                break;
+            }
+            mHeap[index] = parentEntry;
+            parentEntry.queueIndex = index;
+            index = parent;
+        }
+        mHeap[index] = entry;
+        entry.queueIndex = index;
+    }
+
+    private void siftDown(int index) {
+        Entry entry = mHeap[index];
+        int half = mSize >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < mSize && ORDER.compare(mHeap[right], mHeap[child]) < 0) {
+                child = right;
+            }
+            if (ORDER.compare(entry, mHeap[child]) <= 0) {
+                break;
+            }
+            mHeap[index] = mHeap[child];
+            mHeap[index].queueIndex = index;
+            index = child;
+        }
+        mHeap[index] = entry;
+        entry.queueIndex = index;
+    }
+}
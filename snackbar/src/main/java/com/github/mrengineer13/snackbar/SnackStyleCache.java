@@ -0,0 +1,109 @@
+package com.github.mrengineer13.snackbar;
+
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.SparseArray;
+import android.util.TypedValue;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the {@link ColorStateList}s and dimensions a {@link SnackBar.Builder} resolves, so
+ * building a snack does not parse color XML again. Every lookup compares the current
+ * configuration with the one the values were resolved for and starts over when it changed.
+ */
+class SnackStyleCache {
+
+    private static final WeakHashMap<Resources, SnackStyleCache> sCaches = new WeakHashMap<>();
+
+    /**
+     * Held weakly, the resources are also the key of this cache in {@link #sCaches}
+     */
+    private final WeakReference<Resources> mResources;
+
+    private final Configuration mConfiguration;
+
+    private final SparseArray<ColorStateList> mColors = new SparseArray<>();
+
+    private int mPxPerDp = -1;
+
+    private SnackStyleCache(Resources resources) {
+        mResources = new WeakReference<>(resources);
+        mConfiguration = new Configuration(resources.getConfiguration());
+    }
+
+    /**
+     * Returns the cache for the given resources, creating it on first use
+     *
+     * @param resources the resources to resolve values from
+     * @return the shared cache for those resources
+     */
+    static SnackStyleCache get(Resources resources) {
+        synchronized (sCaches) {
+            SnackStyleCache cache = sCaches.get(resources);
+            if (cache == null) {
+                cache = new SnackStyleCache(resources);
+                sCaches.put(resources, cache);
+            }
+            return cache;
+        }
+    }
+
+    synchronized ColorStateList getColorStateList(int colorId) {
+        Resources resources = getResources();
+        ColorStateList colors = mColors.get(colorId);
+        if (colors == null) {
+            colors = resources.getColorStateList(colorId);
+            mColors.put(colorId, colors);
+        }
+        return colors;
+    }
+
+    ColorStateList getActionTextColor(SnackBar.Style style) {
+        return getColorStateList(getActionTextColorId(style));
+    }
+
+    static int getActionTextColorId(SnackBar.Style style) {
+        switch (style) {
+            case ALERT:
+                return R.color.sb__button_text_color_red;
+            case INFO:
+                return R.color.sb__button_text_color_yellow;
+            case CONFIRM:
+                return R.color.sb__button_text_color_green;
+            case DEFAULT:
+                return R.color.sb__default_button_text_color;
+            default:
+                return R.color.sb__default_button_text_color;
+        }
+    }
+
+    ColorStateList getDefaultBackgroundColor() {
+        return getColorStateList(R.color.sb__snack_bkgnd);
+    }
+
+    synchronized int getPxFromDp(int dp) {
+        Resources resources = getResources();
+        if (mPxPerDp < 0) {
+            mPxPerDp = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 1,
+                    resources.getDisplayMetrics());
+        }
+        return mPxPerDp * dp;
+    }
+
+    /**
+     * Returns the resources, dropping the cached values first if their configuration changed
+     */
+    private Resources getResources() {
+        Resources resources = mResources.get();
+        Configuration current = resources.getConfiguration();
+        if (mConfiguration.diff(current) != 0) {
+            mConfiguration.setTo(current);
+            mColors.clear();
+            mPxPerDp = -1;
+        }
+        return resources;
+    }
+}
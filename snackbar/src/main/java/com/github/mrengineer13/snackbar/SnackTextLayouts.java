@@ -0,0 +1,207 @@
+package com.github.mrengineer13.snackbar;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.graphics.Typeface;
+import android.os.Process;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lays out the messages of queued snacks on a background thread, so the text measurement and
+ * line breaking of long messages is not paid in the frame the snack slides in. The layouts
+ * are built with {@link StaticLayout} the way the message view builds its own, and drawn once
+ * into a {@link Picture}, which fills the word layout and glyph caches shared by the process.
+ * The message view then finds its words already shaped when it is bound.
+ * <p>
+ * The layouts are kept, so a {@link SnackView} can draw a prefetched message without laying it
+ * out again. A layout is only handed to the main thread once the background thread is done
+ * drawing it, so the two threads never use the same layout at once.
+ */
+class SnackTextLayouts {
+
+    private static final String TAG = "SnackTextLayouts";
+
+    /**
+     * The number of recently laid out messages kept, so a message queued again is not laid
+     * out twice
+     */
+    private static final int MAX_PREFETCHED = 32;
+
+    private static SnackTextLayouts sInstance;
+
+    private final Executor mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, TAG);
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Messages laid out or being laid out, least recently used first. Only touched on the main
+     * thread.
+     */
+    private final LinkedHashMap<Key, Prefetched> mPrefetched = new LinkedHashMap<Key, Prefetched>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Prefetched> eldest) {
+            return size() > MAX_PREFETCHED;
+        }
+    };
+
+    static synchronized SnackTextLayouts get() {
+        if (sInstance == null) {
+            sInstance = new SnackTextLayouts();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Lays out a message in the background unless it was recently laid out with the same width
+     * and style. Must be called on the main thread.
+     *
+     * @param text the message
+     * @param paint the paint of the message view, copied before it is handed to the background
+     * @param width the width available to the message, without padding
+     */
+    void prefetch(final CharSequence text, TextPaint paint, final int width) {
+        Key key = new Key(text, paint, width);
+        if (mPrefetched.get(key) != null) {
+            return;
+        }
+
+        final Prefetched prefetched = new Prefetched();
+        mPrefetched.put(key, prefetched);
+
+        final TextPaint textPaint = copy(paint);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                StaticLayout layout = newLayout(text, textPaint, width);
+
+                Picture picture = new Picture();
+                Canvas canvas = picture.beginRecording(layout.getWidth(), layout.getHeight());
+                layout.draw(canvas);
+                picture.endRecording();
+
+                // Dropped if the main thread needed the message first and laid it out itself
+                prefetched.layout.compareAndSet(null, layout);
+            }
+        });
+    }
+
+    /**
+     * Returns the layout of a message, the prefetched one when it is ready, or lays it out now.
+     * Must be called on the main thread.
+     *
+     * @param text the message
+     * @param paint the paint to draw the message with, copied when the layout is kept
+     * @param width the width available to the message
+     * @return the layout of the message
+     */
+    StaticLayout obtain(CharSequence text, TextPaint paint, int width) {
+        Key key = new Key(text, paint, width);
+        Prefetched prefetched = mPrefetched.get(key);
+        if (prefetched == null) {
+            prefetched = new Prefetched();
+            mPrefetched.put(key, prefetched);
+        }
+
+        StaticLayout layout = prefetched.layout.get();
+        if (layout == null) {
+            // Still queued or running in the background, laying it out again is cheaper than waiting
+            layout = newLayout(text, copy(paint), width);
+            if (!prefetched.layout.compareAndSet(null, layout)) {
+                layout = prefetched.layout.get();
+            }
+        }
+        return layout;
+    }
+
+    private static StaticLayout newLayout(CharSequence text, TextPaint paint, int width) {
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+    }
+
+    private static TextPaint copy(TextPaint paint) {
+        TextPaint copy = new TextPaint();
+        copy.set(paint);
+        return copy;
+    }
+
+    /**
+     * A message layout, published by the background thread once it is built and drawn, or by
+     * the main thread if it needs the layout first. The first layout published is kept.
+     */
+    static final class Prefetched {
+        final AtomicReference<StaticLayout> layout = new AtomicReference<>();
+    }
+
+    /**
+     * Identifies a message layout by its text, width and the style it is drawn with
+     */
+    static final class Key {
+        private final String text;
+        private final int width;
+        private final float textSize;
+        private final float textScaleX;
+        private final boolean fakeBold;
+        private final int color;
+        private final Typeface typeface;
+        private final int hash;
+
+        Key(CharSequence text, TextPaint paint, int width) {
+            this.text = text.toString();
+            this.width = width;
+            textSize = paint.getTextSize();
+            textScaleX = paint.getTextScaleX();
+            fakeBold = paint.isFakeBoldText();
+            color = paint.getColor();
+            typeface = paint.getTypeface();
+
+            int result = this.text.hashCode();
+            result = 31 * result + width;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + Float.floatToIntBits(textScaleX);
+            result = 31 * result + (fakeBold ? 1 : 0);
+            result = 31 * result + color;
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key other = (Key) o;
+            return hash == other.hash
+                    && width == other.width
+                    && textSize == other.textSize
+                    && textScaleX == other.textScaleX
+                    && fakeBold == other.fakeBold
+                    && color == other.color
+                    && (typeface != null ? typeface.equals(other.typeface) : other.typeface == null)
+                    && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
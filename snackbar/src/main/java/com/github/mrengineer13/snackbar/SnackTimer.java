@@ -0,0 +1,253 @@
+package com.github.mrengineer13.snackbar;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Runs the hide and expiry deadlines of every {@link SnackContainer} in the process from a
+ * single message on the main looper. Deadlines are kept in a binary heap where every task
+ * remembers its slot, so scheduling, canceling and pausing a task are O(log n) and never scan
+ * the message queue of the looper. The message is only moved when the earliest deadline moves
+ * forward; when it moves back the message fires early and is posted again.
+ * <p>
+ * Must be used on the main thread. The clock and the looper message are injected so the timer
+ * can be driven by a fake clock.
+ */
+class SnackTimer implements Runnable {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private static final long NOT_POSTED = Long.MAX_VALUE;
+
+    interface Clock {
+        long uptimeMillis();
+    }
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    /**
+     * Posts the single message of the timer, the subset of {@link Handler} it uses
+     */
+    interface Scheduler {
+        void postAtTime(Runnable runnable, long uptimeMillis);
+
+        void removeCallbacks(Runnable runnable);
+    }
+
+    private static class HandlerScheduler implements Scheduler {
+        private final Handler mHandler;
+
+        HandlerScheduler(Handler handler) {
+            mHandler = handler;
+        }
+
+        @Override
+        public void postAtTime(Runnable runnable, long uptimeMillis) {
+            mHandler.postAtTime(runnable, uptimeMillis);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            mHandler.removeCallbacks(runnable);
+        }
+    }
+
+    /**
+     * Work to run once its deadline has passed
+     */
+    abstract static class Task implements Runnable {
+        long deadline;
+
+        /**
+         * The time left when the task was paused, or -1 if it is not paused
+         */
+        long remaining = -1;
+
+        int timerIndex = -1;
+
+        boolean isPaused() {
+            return remaining >= 0;
+        }
+    }
+
+    private static SnackTimer sInstance;
+
+    private final Clock mClock;
+
+    private final Scheduler mScheduler;
+
+    private Task[] mHeap = new Task[DEFAULT_CAPACITY];
+
+    private int mSize;
+
+    /**
+     * The uptime the looper message is posted for, or {@link #NOT_POSTED}
+     */
+    private long mPostedFor = NOT_POSTED;
+
+    static SnackTimer get() {
+        if (sInstance == null) {
+            Handler handler = new Handler(Looper.getMainLooper());
+            sInstance = new SnackTimer(SYSTEM_CLOCK, new HandlerScheduler(handler));
+        }
+        return sInstance;
+    }
+
+    SnackTimer(Clock clock, Scheduler scheduler) {
+        mClock = clock;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Runs the task once the delay has passed, replacing any deadline it had or resuming it
+     * if it was paused
+     *
+     * @param task the task to run
+     * @param delayMillis the time from now
+     */
+    void schedule(Task task, long delayMillis) {
+        remove(task);
+        task.remaining = -1;
+        task.deadline = mClock.uptimeMillis() + Math.max(0, delayMillis);
+        offer(task);
+        reschedule();
+    }
+
+    /**
+     * Drops the deadline of a scheduled or paused task
+     */
+    void cancel(Task task) {
+        task.remaining = -1;
+        remove(task);
+    }
+
+    /**
+     * Stops the clock of a scheduled task, keeping the time it had left for {@link #resume(Task)}
+     */
+    void pause(Task task) {
+        if (!isScheduled(task)) {
+            return;
+        }
+        task.remaining = Math.max(0, task.deadline - mClock.uptimeMillis());
+        remove(task);
+    }
+
+    /**
+     * Starts the clock of a paused task again with the time it had left
+     */
+    void resume(Task task) {
+        if (task.isPaused()) {
+            schedule(task, task.remaining);
+        }
+    }
+
+    boolean isScheduled(Task task) {
+        int index = task.timerIndex;
+        return index >= 0 && index < mSize && mHeap[index] == task;
+    }
+
+    @Override
+    public void run() {
+        mPostedFor = NOT_POSTED;
+        final long now = mClock.uptimeMillis();
+        // Tasks may schedule or cancel other tasks while they run, so the head is read each time
+        while (mSize > 0 && mHeap[0].deadline <= now) {
+            Task task = removeAt(0);
+            task.run();
+        }
+        reschedule();
+    }
+
+    private void reschedule() {
+        if (mSize == 0 || mHeap[0].deadline >= mPostedFor) {
+            return;
+        }
+        if (mPostedFor != NOT_POSTED) {
+            mScheduler.removeCallbacks(this);
+        }
+        mPostedFor = mHeap[0].deadline;
+        mScheduler.postAtTime(this, mPostedFor);
+    }
+
+    /*
+     * Heap *
+     */
+
+    private void offer(Task task) {
+        if (mSize == mHeap.length) {
+            Task[] grown = new Task[mSize * 2];
+            System.arraycopy(mHeap, 0, grown, 0, mSize);
+            mHeap = grown;
+        }
+        mHeap[mSize] = task;
+        task.timerIndex = mSize;
+        siftUp(mSize++);
+    }
+
+    private void remove(Task task) {
+        if (isScheduled(task)) {
+            removeAt(task.timerIndex);
+        }
+    }
+
+    private Task removeAt(int index) {
+        Task removed = mHeap[index];
+        int last = --mSize;
+        if (index != last) {
+            Task moved = mHeap[last];
+            mHeap[index] = moved;
+            moved.timerIndex = index;
+            mHeap[last] = null;
+            siftDown(index);
+            if (mHeap[index] == moved) {
+                siftUp(index);
+            }
+        } else {
+            mHeap[last] = null;
+        }
+        removed.timerIndex = -1;
+        return removed;
+    }
+
+    private void siftUp(int index) {
+        Task task = mHeap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            Task parentTask = mHeap[parent];
+            if (task.deadline >= parentTask.deadline) {
+                break;
+            }
+            mHeap[index] = parentTask;
+            parentTask.timerIndex = index;
+            index = parent;
+        }
+        mHeap[index] = task;
+        task.timerIndex = index;
+    }
+
+    private void siftDown(int index) {
+        Task task = mHeap[index];
+        int half = mSize >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < mSize && mHeap[right].deadline < mHeap[child].deadline) {
+                child = right;
+            }
+            if (task.deadline <= mHeap[child].deadline) {
+                break;
+            }
+            mHeap[index] = mHeap[child];
+            mHeap[index].timerIndex = index;
+            index = child;
+        }
+        mHeap[index] = task;
+        task.timerIndex = index;
+    }
+}
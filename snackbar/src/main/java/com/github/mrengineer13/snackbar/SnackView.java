@@ -0,0 +1,697 @@
+package com.github.mrengineer13.snackbar;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+import android.widget.FrameLayout;
+
+/**
+ * Draws a snack in a single view: the message, the cancel button and the action button are
+ * measured, laid out and drawn here instead of by the three text views of {@code sb__snack}.
+ * Binding a snack only invalidates this view and a measure pass is one text layout, which the
+ * container usually prefetched through {@link SnackTextLayouts}.
+ * <p>
+ * Touches that go down on a button are tracked here and press the button, every other touch
+ * goes to the touch listener, so the snack can still be swiped away. The view takes the size
+ * and gravity of the {@code SnackBar.SnackBar} style and is laid out left to right.
+ * <p>
+ * Accessibility services read the message and the button labels from the events and node of
+ * this view. From Jelly Bean on, the message and each button are also exposed as virtual views
+ * that can be explored by touch, focused and, for the buttons, clicked.
+ */
+class SnackView extends View {
+
+    /**
+     * Read from the {@code SnackBar.SnackBar} style, sorted by attribute id as
+     * {@link Context#obtainStyledAttributes(int, int[])} requires
+     */
+    private static final int[] STYLE_ATTRS = {
+            android.R.attr.layout_gravity,
+            android.R.attr.layout_width,
+            android.R.attr.minWidth,
+            android.R.attr.minHeight,
+    };
+
+    private static final int STYLE_LAYOUT_GRAVITY = 0;
+    private static final int STYLE_LAYOUT_WIDTH = 1;
+    private static final int STYLE_MIN_WIDTH = 2;
+    private static final int STYLE_MIN_HEIGHT = 3;
+
+    /**
+     * Ids of the virtual views exposed to accessibility services
+     */
+    static final int VIRTUAL_MESSAGE = 0;
+    static final int VIRTUAL_CANCEL = 1;
+    static final int VIRTUAL_ACTION = 2;
+
+    private final TextPaint mMessagePaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+
+    private final TextPaint mButtonPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+
+    private final ColorStateList mDefaultButtonColor;
+
+    private final int mHorizontalMargin;
+    private final int mVerticalMarginTop;
+    private final int mVerticalMarginBottom;
+    private final int mDrawablePadding;
+    private final int mTouchSlop;
+
+    private final Button mCancel = new Button(R.string.sb__cancel_button_description);
+
+    private final Button mAction = new Button(R.string.sb__action_button_description);
+
+    private CharSequence mMessage;
+
+    /**
+     * The layout of the message for the last measured width, or null until it is measured
+     */
+    private StaticLayout mMessageLayout;
+
+    private int mMessageLeft;
+    private int mMessageTop;
+
+    /**
+     * The button a touch went down on, or null while the touch listener gets the events
+     */
+    private Button mTouchedButton;
+
+    /**
+     * Created the first time an accessibility service asks for it
+     */
+    private SnackNodeProvider mNodeProvider;
+
+    private int mFocusedVirtualView = NO_ID;
+
+    private int mHoveredVirtualView = NO_ID;
+
+    SnackView(Context context) {
+        super(context);
+        Resources resources = context.getResources();
+
+        mHorizontalMargin = resources.getDimensionPixelSize(R.dimen.snack_bar_horizontal_margin);
+        mVerticalMarginTop = resources.getDimensionPixelSize(R.dimen.snack_bar_vertical_margin_top);
+        mVerticalMarginBottom = resources.getDimensionPixelSize(R.dimen.snack_bar_vertical_margin_bottom);
+        mDrawablePadding = resources.getDimensionPixelSize(R.dimen.snack_bar_drawable_padding);
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        float textSize = resources.getDimension(R.dimen.snack_bar_text_size);
+        mMessagePaint.setTextSize(textSize);
+        mMessagePaint.setColor(resources.getColor(R.color.sb__message_text_color));
+        mButtonPaint.setTextSize(textSize);
+        mButtonPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        mDefaultButtonColor = SnackStyleCache.get(resources)
+                .getColorStateList(R.color.sb__default_button_text_color);
+
+        TypedArray style = context.obtainStyledAttributes(R.style.SnackBar_SnackBar, STYLE_ATTRS);
+        setMinimumWidth(style.getDimensionPixelSize(STYLE_MIN_WIDTH, 0));
+        setMinimumHeight(style.getDimensionPixelSize(STYLE_MIN_HEIGHT, 0));
+        setLayoutParams(new FrameLayout.LayoutParams(
+                style.getLayoutDimension(STYLE_LAYOUT_WIDTH, ViewGroup.LayoutParams.MATCH_PARENT),
+                ViewGroup.LayoutParams.WRAP_CONTENT,
+                style.getInt(STYLE_LAYOUT_GRAVITY, Gravity.BOTTOM)));
+        style.recycle();
+
+        setClickable(true);
+    }
+
+    void bind(Snack snack) {
+        setMessage(snack.mMessage);
+        setButtonParams(mAction, snack.mActionButtonParams);
+        setButtonParams(mCancel, snack.mCancelButtonParams);
+        setBackgroundColor(snack.mBackgroundColor.getDefaultColor());
+        onVirtualViewsChanged();
+    }
+
+    void setMessage(CharSequence message) {
+        if (message != null ? message.equals(mMessage) : mMessage == null) {
+            return;
+        }
+        mMessage = message;
+        mMessageLayout = null;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Sets what is called when a button is clicked, with this view as the argument
+     */
+    void setOnButtonClickListeners(OnClickListener actionListener, OnClickListener cancelListener) {
+        mAction.listener = actionListener;
+        mCancel.listener = cancelListener;
+    }
+
+    TextPaint getMessagePaint() {
+        return mMessagePaint;
+    }
+
+    /**
+     * Returns the width the message was last laid out in, or 0 before the first measure
+     */
+    int getMessageWidth() {
+        return mMessageLayout != null ? mMessageLayout.getWidth() : 0;
+    }
+
+    private void setButtonParams(Button button, SnackBarButtonParams params) {
+        // Params are interned, the same instance means nothing changed since the last snack
+        if (button.params == params) {
+            return;
+        }
+        button.params = params;
+        button.label = params.mTitle != null
+                ? params.mTitle.toUpperCase(getResources().getConfiguration().locale) : null;
+        button.textColor = params.mTextColor != null ? params.mTextColor : mDefaultButtonColor;
+
+        if (button.icon != null) {
+            button.icon.setCallback(null);
+        }
+        button.icon = params.mIcon > 0 ? getResources().getDrawable(params.mIcon) : null;
+        if (button.icon != null) {
+            button.icon.setCallback(this);
+        }
+
+        button.labelWidth = button.label != null ? (int) Math.ceil(mButtonPaint.measureText(button.label)) : 0;
+        requestLayout();
+        invalidate();
+    }
+
+    /*
+     * Measure and Layout *
+     */
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        final int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+        final int buttonsWidth = getButtonWidth(mCancel) + getButtonWidth(mAction);
+
+        int width;
+        if (widthMode == MeasureSpec.EXACTLY) {
+            width = widthSize;
+        } else {
+            int desiredWidth = mMessage != null
+                    ? (int) Math.ceil(Layout.getDesiredWidth(mMessage, mMessagePaint)) : 0;
+            width = Math.max(getSuggestedMinimumWidth(), buttonsWidth + desiredWidth + 2 * mHorizontalMargin);
+            if (widthMode == MeasureSpec.AT_MOST) {
+                width = Math.min(width, widthSize);
+            }
+        }
+
+        int messageWidth = Math.max(0, width - buttonsWidth - 2 * mHorizontalMargin);
+        if (mMessageLayout == null || mMessageLayout.getWidth() != messageWidth) {
+            mMessageLayout = SnackTextLayouts.get().obtain(mMessage != null ? mMessage : "",
+                    mMessagePaint, messageWidth);
+        }
+
+        int height = Math.max(getSuggestedMinimumHeight(),
+                mVerticalMarginTop + mMessageLayout.getHeight() + mVerticalMarginBottom);
+        height = Math.max(height, getButtonHeight(mCancel));
+        height = Math.max(height, getButtonHeight(mAction));
+
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        final int width = right - left;
+        final int height = bottom - top;
+
+        // Buttons take the full height so they are easy to hit, the action button is rightmost
+        int buttonRight = width;
+        buttonRight = layoutButton(mAction, buttonRight, height);
+        layoutButton(mCancel, buttonRight, height);
+
+        int messageHeight = mMessageLayout != null ? mMessageLayout.getHeight() : 0;
+        mMessageLeft = mHorizontalMargin;
+        mMessageTop = mVerticalMarginTop
+                + (height - mVerticalMarginTop - mVerticalMarginBottom - messageHeight) / 2;
+    }
+
+    private int layoutButton(Button button, int right, int height) {
+        if (!button.isVisible()) {
+            button.bounds.setEmpty();
+            return right;
+        }
+        int left = right - getButtonWidth(button);
+        button.bounds.set(left, 0, right, height);
+
+        int contentLeft = left + mHorizontalMargin;
+        if (button.icon != null) {
+            int iconTop = (height - button.icon.getIntrinsicHeight()) / 2;
+            button.icon.setBounds(contentLeft, iconTop, contentLeft + button.icon.getIntrinsicWidth(),
+                    iconTop + button.icon.getIntrinsicHeight());
+            contentLeft += button.icon.getIntrinsicWidth() + (button.label != null ? mDrawablePadding : 0);
+        }
+        button.labelLeft = contentLeft;
+        return left;
+    }
+
+    private int getButtonWidth(Button button) {
+        if (!button.isVisible()) {
+            return 0;
+        }
+        int width = button.labelWidth;
+        if (button.icon != null) {
+            width += button.icon.getIntrinsicWidth() + (button.label != null ? mDrawablePadding : 0);
+        }
+        return width + 2 * mHorizontalMargin;
+    }
+
+    private int getButtonHeight(Button button) {
+        if (!button.isVisible()) {
+            return 0;
+        }
+        int contentHeight = button.label != null ? (int) Math.ceil(mButtonPaint.descent() - mButtonPaint.ascent()) : 0;
+        if (button.icon != null) {
+            contentHeight = Math.max(contentHeight, button.icon.getIntrinsicHeight());
+        }
+        return mVerticalMarginTop + contentHeight + mVerticalMarginBottom;
+    }
+
+    /*
+     * Drawing *
+     */
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mMessageLayout != null) {
+            int saveCount = canvas.save();
+            canvas.translate(mMessageLeft, mMessageTop);
+            mMessageLayout.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        }
+        drawButton(canvas, mCancel);
+        drawButton(canvas, mAction);
+    }
+
+    private void drawButton(Canvas canvas, Button button) {
+        if (!button.isVisible()) {
+            return;
+        }
+        int[] state = button.pressed ? PRESSED_ENABLED_STATE_SET : ENABLED_STATE_SET;
+        if (button.icon != null) {
+            button.icon.setState(state);
+            button.icon.draw(canvas);
+        }
+        if (button.label != null) {
+            mButtonPaint.setColor(button.textColor.getColorForState(state, button.textColor.getDefaultColor()));
+            float baseline = button.bounds.top + (button.bounds.height()
+                    - mButtonPaint.descent() - mButtonPaint.ascent()) / 2;
+            canvas.drawText(button.label, button.labelLeft, baseline, mButtonPaint);
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return who == mAction.icon || who == mCancel.icon || super.verifyDrawable(who);
+    }
+
+    /*
+     * Hit Testing *
+     */
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        final int x = (int) event.getX();
+        final int y = (int) event.getY();
+
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            mTouchedButton = findButton(x, y);
+        }
+        if (mTouchedButton == null) {
+            return super.dispatchTouchEvent(event);
+        }
+
+        Button button = mTouchedButton;
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setButtonPressed(button, true);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                setButtonPressed(button, isInButton(button, x, y));
+                break;
+
+            case MotionEvent.ACTION_UP:
+                boolean clicked = button.pressed;
+                setButtonPressed(button, false);
+                mTouchedButton = null;
+                if (clicked && button.listener != null) {
+                    playSoundEffect(SoundEffectConstants.CLICK);
+                    performButtonClick(button);
+                }
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                setButtonPressed(button, false);
+                mTouchedButton = null;
+                break;
+        }
+        return true;
+    }
+
+    private Button findButton(int x, int y) {
+        if (mAction.isVisible() && mAction.bounds.contains(x, y)) {
+            return mAction;
+        }
+        if (mCancel.isVisible() && mCancel.bounds.contains(x, y)) {
+            return mCancel;
+        }
+        return null;
+    }
+
+    /**
+     * Same as a pressed button, the press is kept while the touch stays within the slop
+     */
+    private boolean isInButton(Button button, int x, int y) {
+        Rect bounds = button.bounds;
+        return x >= bounds.left - mTouchSlop && x < bounds.right + mTouchSlop
+                && y >= bounds.top - mTouchSlop && y < bounds.bottom + mTouchSlop;
+    }
+
+    private void setButtonPressed(Button button, boolean pressed) {
+        if (button.pressed != pressed) {
+            button.pressed = pressed;
+            invalidate(button.bounds);
+        }
+    }
+
+    private boolean performButtonClick(Button button) {
+        if (button.listener == null) {
+            return false;
+        }
+        button.listener.onClick(this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            sendEventForVirtualView(button == mAction ? VIRTUAL_ACTION : VIRTUAL_CANCEL,
+                    AccessibilityEvent.TYPE_VIEW_CLICKED);
+        }
+        return true;
+    }
+
+    /*
+     * Accessibility *
+     */
+
+    @Override
+    public void onPopulateAccessibilityEvent(AccessibilityEvent event) {
+        super.onPopulateAccessibilityEvent(event);
+        // Read like the text views of sb__snack, message first
+        for (int id = VIRTUAL_MESSAGE; id <= VIRTUAL_ACTION; id++) {
+            if (isVirtualViewVisible(id)) {
+                event.getText().add(getVirtualViewText(id));
+            }
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            // Without virtual views the snack is a single node that holds all of its text
+            StringBuilder text = new StringBuilder();
+            for (int id = VIRTUAL_MESSAGE; id <= VIRTUAL_ACTION; id++) {
+                if (isVirtualViewVisible(id)) {
+                    if (text.length() > 0) {
+                        text.append(". ");
+                    }
+                    text.append(getVirtualViewText(id));
+                }
+            }
+            info.setText(text);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        if (mNodeProvider == null) {
+            mNodeProvider = new SnackNodeProvider();
+        }
+        return mNodeProvider;
+    }
+
+    /**
+     * Reports the virtual view under the pointer while touch exploration is on
+     */
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+                || !getAccessibilityManager().isTouchExplorationEnabled()) {
+            return super.dispatchHoverEvent(event);
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_HOVER_ENTER:
+            case MotionEvent.ACTION_HOVER_MOVE:
+                setHoveredVirtualView(findVirtualView((int) event.getX(), (int) event.getY()));
+                return true;
+
+            case MotionEvent.ACTION_HOVER_EXIT:
+                setHoveredVirtualView(NO_ID);
+                return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    int findVirtualView(int x, int y) {
+        Button button = findButton(x, y);
+        if (button != null) {
+            return button == mAction ? VIRTUAL_ACTION : VIRTUAL_CANCEL;
+        }
+        return isVirtualViewVisible(VIRTUAL_MESSAGE) ? VIRTUAL_MESSAGE : NO_ID;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void setHoveredVirtualView(int virtualView) {
+        if (mHoveredVirtualView == virtualView) {
+            return;
+        }
+        int previous = mHoveredVirtualView;
+        mHoveredVirtualView = virtualView;
+        if (virtualView != NO_ID) {
+            sendEventForVirtualView(virtualView, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+        }
+        if (previous != NO_ID) {
+            sendEventForVirtualView(previous, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+        }
+    }
+
+    /**
+     * Tells accessibility services that a new snack was bound, the parts they may have cached
+     * are gone
+     */
+    private void onVirtualViewsChanged() {
+        mHoveredVirtualView = NO_ID;
+        if (mFocusedVirtualView != NO_ID && !isVirtualViewVisible(mFocusedVirtualView)) {
+            mFocusedVirtualView = NO_ID;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH
+                && getParent() != null && getAccessibilityManager().isEnabled()) {
+            sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void sendEventForVirtualView(int virtualView, int eventType) {
+        ViewParent parent = getParent();
+        if (parent == null || !getAccessibilityManager().isEnabled()) {
+            return;
+        }
+        AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+        event.setEnabled(true);
+        event.setClassName(getVirtualViewClassName(virtualView));
+        event.setPackageName(getContext().getPackageName());
+        event.getText().add(getVirtualViewText(virtualView));
+        event.setSource(this, virtualView);
+        parent.requestSendAccessibilityEvent(this, event);
+    }
+
+    private AccessibilityManager getAccessibilityManager() {
+        return (AccessibilityManager) getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+    }
+
+    private boolean isVirtualViewVisible(int virtualView) {
+        switch (virtualView) {
+            case VIRTUAL_MESSAGE:
+                return mMessage != null;
+            case VIRTUAL_CANCEL:
+                return mCancel.isVisible();
+            case VIRTUAL_ACTION:
+                return mAction.isVisible();
+            default:
+                return false;
+        }
+    }
+
+    private CharSequence getVirtualViewText(int virtualView) {
+        if (virtualView == VIRTUAL_MESSAGE) {
+            return mMessage;
+        }
+        Button button = virtualView == VIRTUAL_ACTION ? mAction : mCancel;
+        // Icon only buttons are read by what they do
+        return button.params.mTitle != null
+                ? button.params.mTitle : getResources().getString(button.descriptionId);
+    }
+
+    private static String getVirtualViewClassName(int virtualView) {
+        return virtualView == VIRTUAL_MESSAGE
+                ? "android.widget.TextView" : "android.widget.Button";
+    }
+
+    private void getVirtualViewBounds(int virtualView, Rect bounds) {
+        if (virtualView == VIRTUAL_MESSAGE) {
+            if (mMessageLayout != null) {
+                bounds.set(mMessageLeft, mMessageTop, mMessageLeft + mMessageLayout.getWidth(),
+                        mMessageTop + mMessageLayout.getHeight());
+            } else {
+                bounds.setEmpty();
+            }
+        } else {
+            bounds.set(virtualView == VIRTUAL_ACTION ? mAction.bounds : mCancel.bounds);
+        }
+    }
+
+    /**
+     * Exposes the message and the buttons as children of this view
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class SnackNodeProvider extends AccessibilityNodeProvider {
+        private final Rect mTempBounds = new Rect();
+
+        private final int[] mTempLocation = new int[2];
+
+        @Override
+        public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+            if (virtualViewId == NO_ID) {
+                AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(SnackView.this);
+                onInitializeAccessibilityNodeInfo(info);
+                for (int id = VIRTUAL_MESSAGE; id <= VIRTUAL_ACTION; id++) {
+                    if (isVirtualViewVisible(id)) {
+                        info.addChild(SnackView.this, id);
+                    }
+                }
+                return info;
+            }
+            if (!isVirtualViewVisible(virtualViewId)) {
+                return null;
+            }
+
+            AccessibilityNodeInfo node = AccessibilityNodeInfo.obtain();
+            node.setSource(SnackView.this, virtualViewId);
+            node.setParent(SnackView.this);
+            node.setPackageName(getContext().getPackageName());
+            node.setClassName(getVirtualViewClassName(virtualViewId));
+            node.setText(getVirtualViewText(virtualViewId));
+            node.setEnabled(true);
+            node.setVisibleToUser(true);
+
+            getVirtualViewBounds(virtualViewId, mTempBounds);
+            node.setBoundsInParent(mTempBounds);
+            getLocationOnScreen(mTempLocation);
+            mTempBounds.offset(mTempLocation[0], mTempLocation[1]);
+            node.setBoundsInScreen(mTempBounds);
+
+            if (virtualViewId != VIRTUAL_MESSAGE) {
+                node.setClickable(true);
+                node.addAction(AccessibilityNodeInfo.ACTION_CLICK);
+            }
+            if (mFocusedVirtualView == virtualViewId) {
+                node.setAccessibilityFocused(true);
+                node.addAction(AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+            } else {
+                node.addAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+            }
+            return node;
+        }
+
+        @Override
+        public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+            if (virtualViewId == NO_ID) {
+                return performAccessibilityAction(action, arguments);
+            }
+            if (!isVirtualViewVisible(virtualViewId)) {
+                return false;
+            }
+            switch (action) {
+                case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+                    if (mFocusedVirtualView == virtualViewId) {
+                        return false;
+                    }
+                    if (mFocusedVirtualView != NO_ID) {
+                        sendEventForVirtualView(mFocusedVirtualView,
+                                AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                    }
+                    mFocusedVirtualView = virtualViewId;
+                    sendEventForVirtualView(virtualViewId,
+                            AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                    return true;
+
+                case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                    if (mFocusedVirtualView != virtualViewId) {
+                        return false;
+                    }
+                    mFocusedVirtualView = NO_ID;
+                    sendEventForVirtualView(virtualViewId,
+                            AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                    return true;
+
+                case AccessibilityNodeInfo.ACTION_CLICK:
+                    return virtualViewId != VIRTUAL_MESSAGE
+                            && performButtonClick(virtualViewId == VIRTUAL_ACTION ? mAction : mCancel);
+
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * What a button text view of {@code sb__snack} holds
+     */
+    private static final class Button {
+        /**
+         * Read out for a button that only has an icon
+         */
+        final int descriptionId;
+
+        SnackBarButtonParams params;
+        String label;
+        int labelWidth;
+        int labelLeft;
+        ColorStateList textColor;
+        Drawable icon;
+        OnClickListener listener;
+        boolean pressed;
+        final Rect bounds = new Rect();
+
+        Button(int descriptionId) {
+            this.descriptionId = descriptionId;
+        }
+
+        boolean isVisible() {
+            return label != null || icon != null;
+        }
+    }
+}
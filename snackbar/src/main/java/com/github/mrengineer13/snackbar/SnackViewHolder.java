@@ -0,0 +1,174 @@
+package com.github.mrengineer13.snackbar;
+
+import android.text.TextPaint;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+/**
+ * Caches the child views of an inflated {@code sb__snack} layout so a recycled view
+ * can be rebound to a new {@link Snack} without walking the view tree again. A
+ * {@link SnackView} has no child views, the holder binds it directly.
+ */
+class SnackViewHolder {
+
+    final View snackView;
+    final TextView messageView;
+    final TextView button;
+    final TextView cancelButton;
+
+    /**
+     * The snack view when it draws the snack itself, the text views are null then
+     */
+    final SnackView flatView;
+
+    /**
+     * The queued snack currently bound to this view, or null while the view is pooled
+     */
+    SnackContainer.SnackHolder snackHolder;
+
+    /**
+     * How far above the bottom of the container the view was last laid out, for stacked snacks
+     */
+    int laneOffset;
+
+    /**
+     * Whether the view was laid out since it was bound, so a lane change can be animated
+     */
+    boolean laidOut;
+
+    private SnackViewHolder(View snackView) {
+        this.snackView = snackView;
+        if (snackView instanceof SnackView) {
+            flatView = (SnackView) snackView;
+            button = null;
+            cancelButton = null;
+            messageView = null;
+        } else {
+            flatView = null;
+            button = (TextView) snackView.findViewById(R.id.snackButton);
+            cancelButton = (TextView) snackView.findViewById(R.id.snackCancelButton);
+            messageView = (TextView) snackView.findViewById(R.id.snackMessage);
+        }
+    }
+
+    /**
+     * Returns the holder cached on the given snack view, creating it on first use
+     *
+     * @param snackView a view inflated from {@code sb__snack} or a {@link SnackView}
+     * @return the holder for the view
+     */
+    static SnackViewHolder of(View snackView) {
+        SnackViewHolder holder = (SnackViewHolder) snackView.getTag(R.id.snackViewHolder);
+        if (holder == null) {
+            holder = new SnackViewHolder(snackView);
+            snackView.setTag(R.id.snackViewHolder, holder);
+        }
+        return holder;
+    }
+
+    /**
+     * Returns the holder of the snack view a button was clicked in
+     *
+     * @param button a button of {@code sb__snack}, or the {@link SnackView} itself
+     * @return the holder of the snack view
+     */
+    static SnackViewHolder ofButton(View button) {
+        return of(button instanceof SnackView ? button : (View) button.getParent());
+    }
+
+    boolean isFlat() {
+        return flatView != null;
+    }
+
+    void setOnButtonClickListeners(View.OnClickListener actionListener, View.OnClickListener cancelListener) {
+        if (flatView != null) {
+            flatView.setOnButtonClickListeners(actionListener, cancelListener);
+        } else {
+            button.setOnClickListener(actionListener);
+            cancelButton.setOnClickListener(cancelListener);
+        }
+    }
+
+    /**
+     * Returns the paint the message is drawn with, for laying out queued messages ahead
+     */
+    TextPaint getMessagePaint() {
+        return flatView != null ? flatView.getMessagePaint() : messageView.getPaint();
+    }
+
+    /**
+     * Returns the width the message is laid out in, without padding
+     */
+    int getMessageWidth() {
+        if (flatView != null) {
+            return flatView.getMessageWidth();
+        }
+        return messageView.getWidth() - messageView.getCompoundPaddingLeft()
+                - messageView.getCompoundPaddingRight();
+    }
+
+    void bind(Snack snack) {
+        if (flatView != null) {
+            flatView.bind(snack);
+        } else {
+            messageView.setText(snack.mMessage);
+
+            setButtonParams(snack.mActionButtonParams, button);
+            setButtonParams(snack.mCancelButtonParams, cancelButton);
+
+            snackView.setBackgroundColor(snack.mBackgroundColor.getDefaultColor());
+        }
+
+        ViewGroup.LayoutParams params = snackView.getLayoutParams();
+        if (params != null) {
+            params.height = snack.mHeight > 0 ? getPxFromDp(snack.mHeight) : ViewGroup.LayoutParams.WRAP_CONTENT;
+        }
+    }
+
+    /**
+     * Shows how many identical snacks were folded into the bound one
+     *
+     * @param snack the bound snack
+     * @param repeatCount the number of identical snacks, including the bound one
+     */
+    void setRepeatCount(Snack snack, int repeatCount) {
+        setMessage(snackView.getResources().getString(R.string.sb__repeat_count,
+                snack.mMessage, repeatCount));
+    }
+
+    /**
+     * Replaces the message with a summary of the snacks collapsed into the bound one
+     *
+     * @param overflowCount the number of collapsed snacks
+     */
+    void setOverflowCount(int overflowCount) {
+        setMessage(snackView.getResources().getQuantityString(R.plurals.sb__overflow_summary,
+                overflowCount, overflowCount));
+    }
+
+    private void setMessage(CharSequence message) {
+        if (flatView != null) {
+            flatView.setMessage(message);
+        } else {
+            messageView.setText(message);
+        }
+    }
+
+    private void setButtonParams(SnackBarButtonParams params, TextView button){
+        if (params.mTitle != null || params.mIcon > 0){
+            button.setVisibility(View.VISIBLE);
+            button.setText(params.mTitle);
+            button.setCompoundDrawablesWithIntrinsicBounds(params.mIcon, 0, 0, 0);
+            if (params.mTextColor != null) {
+                button.setTextColor(params.mTextColor);
+            }
+        } else {
+            button.setVisibility(View.GONE);
+        }
+    }
+
+    private int getPxFromDp(int dp) {
+        return SnackStyleCache.get(snackView.getResources()).getPxFromDp(dp);
+    }
+}
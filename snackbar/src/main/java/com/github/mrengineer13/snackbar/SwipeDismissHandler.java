@@ -0,0 +1,155 @@
+package com.github.mrengineer13.snackbar;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+/**
+ * Lets the user swipe a snack view down to dismiss it, either by dragging it past half its
+ * height or by flinging it downwards. One instance is shared by every view of a
+ * {@link SnackContainer} and does not allocate while tracking move events. It follows one
+ * gesture at a time, on the view that received its down event; touches on other views are
+ * ignored until that gesture ends.
+ */
+class SwipeDismissHandler implements View.OnTouchListener {
+
+    interface OnDismissListener {
+        void onDismiss(View snackView);
+    }
+
+    private final OnDismissListener mDismissListener;
+
+    private final int mTouchSlop;
+    private final int mMinFlingVelocity;
+    private final int mMaxFlingVelocity;
+
+    private VelocityTracker mVelocityTracker;
+
+    /**
+     * The view of the gesture being tracked, null between gestures
+     */
+    private View mTrackedView;
+
+    private float mDownY;
+    private float mOffset;
+    private int mAppliedOffset;
+    private boolean mSwiping;
+
+    SwipeDismissHandler(Context context, OnDismissListener dismissListener) {
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        mTouchSlop = configuration.getScaledTouchSlop();
+        mMinFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        mMaxFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+        mDismissListener = dismissListener;
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN && mTrackedView == null) {
+            mTrackedView = v;
+        } else if (v != mTrackedView) {
+            // Another lane is being swiped, leave this view alone until that gesture ends
+            return false;
+        }
+
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                mDownY = event.getRawY();
+                mOffset = 0;
+                mAppliedOffset = 0;
+                mSwiping = false;
+                if (mVelocityTracker == null) {
+                    mVelocityTracker = VelocityTracker.obtain();
+                } else {
+                    mVelocityTracker.clear();
+                }
+                addMovement(event);
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (mVelocityTracker == null) {
+                    break;
+                }
+                addMovement(event);
+
+                float dy = event.getRawY() - mDownY;
+                if (!mSwiping && dy > mTouchSlop) {
+                    mSwiping = true;
+                }
+                if (mSwiping) {
+                    setOffset(v, Math.max(0, dy - mTouchSlop));
+                }
+                break;
+
+            case MotionEvent.ACTION_UP:
+                if (mVelocityTracker == null) {
+                    break;
+                }
+                addMovement(event);
+                mVelocityTracker.computeCurrentVelocity(1000, mMaxFlingVelocity);
+                float velocityY = mVelocityTracker.getYVelocity();
+
+                boolean dismiss = mSwiping
+                        && (mOffset > v.getHeight() / 2 || velocityY >= mMinFlingVelocity);
+                mTrackedView = null;
+                if (dismiss) {
+                    mSwiping = false;
+                    mDismissListener.onDismiss(v);
+                } else {
+                    reset(v);
+                }
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                mTrackedView = null;
+                reset(v);
+                break;
+        }
+
+        return true;
+    }
+
+    /**
+     * Releases the velocity tracker, called once the owning container goes away
+     */
+    void release() {
+        mTrackedView = null;
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    private void addMovement(MotionEvent event) {
+        // Track the finger relative to where the view started, not where it has been dragged to
+        event.offsetLocation(0, mOffset);
+        mVelocityTracker.addMovement(event);
+        event.offsetLocation(0, -mOffset);
+    }
+
+    private void reset(View v) {
+        mSwiping = false;
+        setOffset(v, 0);
+    }
+
+    private void setOffset(View v, float offset) {
+        mOffset = offset;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            setTranslationY(v, offset);
+        } else {
+            int delta = Math.round(offset) - mAppliedOffset;
+            v.offsetTopAndBottom(delta);
+            mAppliedOffset += delta;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    private static void setTranslationY(View v, float translationY) {
+        v.setTranslationY(translationY);
+    }
+}